@@ -0,0 +1,169 @@
+package com.polycraft.engine.benchmarks;
+
+import com.polycraft.engine.PolyCraftEngine;
+import com.polycraft.engine.api.PolyAPI;
+import com.polycraft.engine.config.ScriptConfig;
+import com.polycraft.engine.data.ScriptDataManager;
+import com.polycraft.engine.listeners.EventManager;
+import com.polycraft.engine.metrics.TickTimings;
+import com.polycraft.engine.scheduler.ScriptScheduler;
+import com.polycraft.engine.scripting.ContextPool;
+import com.polycraft.engine.scripting.ScriptInstance;
+import com.polycraft.engine.scripting.SourceCache;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.command.ConsoleCommandSender;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.graalvm.polyglot.Engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * A headless plugin environment for benchmarks: a real shared GraalVM engine, source cache,
+ * context pool, event manager and data manager, with the Bukkit server and plugin mocked.
+ */
+final class BenchmarkFixture implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger("PolyCraft-Benchmark");
+    private static Server server;
+
+    static {
+        LOGGER.setLevel(Level.WARNING);
+    }
+
+    final Path dataFolder;
+    final Engine engine;
+    final PolyCraftEngine plugin;
+    final PluginManager pluginManager;
+    final ScriptConfig scriptConfig;
+    final SourceCache sourceCache;
+    final ContextPool contextPool;
+    final ScriptScheduler scheduler;
+    final EventManager eventManager;
+    final ScriptDataManager dataManager;
+
+    BenchmarkFixture() throws IOException {
+        this.dataFolder = Files.createTempDirectory("polycraft-bench");
+        Files.createDirectories(dataFolder.resolve("scripts"));
+
+        Server server = getServer();
+        this.pluginManager = server.getPluginManager();
+        this.engine = Engine.newBuilder().option("engine.WarnInterpreterOnly", "false").build();
+        this.plugin = mock(PolyCraftEngine.class);
+        this.scriptConfig = mock(ScriptConfig.class);
+        when(scriptConfig.isMetricsEnabled()).thenReturn(true);
+
+        when(plugin.getLogger()).thenReturn(LOGGER);
+        when(plugin.getName()).thenReturn("PolyCraft-Engine");
+        when(plugin.getDataFolder()).thenReturn(dataFolder.toFile());
+        when(plugin.getServer()).thenReturn(server);
+        when(plugin.isEnabled()).thenReturn(true);
+        when(plugin.getGraalEngine()).thenReturn(engine);
+        when(plugin.getScriptConfig()).thenReturn(scriptConfig);
+
+        this.sourceCache = new SourceCache(100);
+        when(plugin.getSourceCache()).thenReturn(sourceCache);
+        this.contextPool = new ContextPool(plugin, engine, 2);
+        when(plugin.getContextPool()).thenReturn(contextPool);
+        TickTimings tickTimings = new TickTimings();
+        when(plugin.getTickTimings()).thenReturn(tickTimings);
+        PolyAPI polyAPI = new PolyAPI(plugin);
+        when(plugin.getPolyAPI()).thenReturn(polyAPI);
+
+        this.scheduler = new ScriptScheduler(plugin);
+        this.eventManager = new EventManager(plugin);
+        when(plugin.getEventManager()).thenReturn(eventManager);
+        this.dataManager = new ScriptDataManager(plugin);
+        when(plugin.getDataManager()).thenReturn(dataManager);
+
+        contextPool.prewarm("js", dataFolder.resolve("scripts").toFile());
+    }
+
+    /**
+     * Installs a mocked server as the Bukkit singleton. Bukkit only accepts one per JVM.
+     */
+    private static synchronized Server getServer() {
+        if (server == null) {
+            server = mock(Server.class);
+            when(server.getLogger()).thenReturn(LOGGER);
+            when(server.isPrimaryThread()).thenReturn(true);
+            when(server.getCurrentTick()).thenReturn(1);
+            PluginManager pluginManager = mock(PluginManager.class);
+            when(server.getPluginManager()).thenReturn(pluginManager);
+            BukkitScheduler bukkitScheduler = mock(BukkitScheduler.class);
+            when(server.getScheduler()).thenReturn(bukkitScheduler);
+            ConsoleCommandSender console = mock(ConsoleCommandSender.class);
+            when(server.getConsoleSender()).thenReturn(console);
+            Bukkit.setServer(server);
+        }
+        return server;
+    }
+
+    /**
+     * Writes a script into the scripts folder.
+     */
+    File writeScript(String name, String content) throws IOException {
+        Path path = dataFolder.resolve("scripts").resolve(name);
+        Files.createDirectories(path.getParent());
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+        return path.toFile();
+    }
+
+    /**
+     * Creates, loads and activates a script.
+     */
+    ScriptInstance loadScript(String name, String content) throws IOException {
+        ScriptInstance script = newScript(writeScript(name, content));
+        script.initialize();
+        return script;
+    }
+
+    ScriptInstance newScript(File file) {
+        return new ScriptInstance(plugin, file, scheduler, eventManager, scriptConfig, dataManager);
+    }
+
+    /**
+     * Creates a move event for a mocked player in a world named {@code world}.
+     */
+    static PlayerMoveEvent newMoveEvent() {
+        World world = mock(World.class);
+        when(world.getName()).thenReturn("world");
+        Player player = mock(Player.class);
+        when(player.getWorld()).thenReturn(world);
+        when(player.getUniqueId()).thenReturn(UUID.randomUUID());
+        when(player.getName()).thenReturn("Benchmark");
+        when(player.getType()).thenReturn(EntityType.PLAYER);
+        Location from = new Location(world, 0, 64, 0);
+        Location to = new Location(world, 0.25, 64, 0);
+        when(player.getLocation()).thenReturn(to);
+        return new PlayerMoveEvent(player, from, to);
+    }
+
+    @Override
+    public void close() throws IOException {
+        dataManager.shutdown();
+        contextPool.close();
+        engine.close();
+        try (Stream<Path> paths = Files.walk(dataFolder)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
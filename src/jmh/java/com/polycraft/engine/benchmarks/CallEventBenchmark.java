@@ -0,0 +1,57 @@
+package com.polycraft.engine.benchmarks;
+
+import com.polycraft.engine.scripting.ScriptInstance;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.graalvm.polyglot.Value;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a single host-to-guest event call through {@link ScriptInstance#callEvent},
+ * including the context lock, the watchdog hook and profiling.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CallEventBenchmark {
+
+    private BenchmarkFixture fixture;
+    private ScriptInstance script;
+    private Value emptyHandler;
+    private Value readingHandler;
+    private PlayerMoveEvent event;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        fixture = new BenchmarkFixture();
+        script = fixture.loadScript("call-event.js",
+                "var total = 0;\n" +
+                "function emptyHandler(e) { }\n" +
+                "function readingHandler(e) { total += e.getTo().getX() - e.getFrom().getX(); }\n" +
+                "function handlers() { return [emptyHandler, readingHandler]; }\n");
+        Value handlers = (Value) script.safeCallScriptFunction("handlers");
+        emptyHandler = handlers.getArrayElement(0);
+        readingHandler = handlers.getArrayElement(1);
+        event = BenchmarkFixture.newMoveEvent();
+    }
+
+    @Benchmark
+    public void emptyHandler() {
+        script.callEvent(emptyHandler, "emptyHandler", "event:emptyHandler", event);
+    }
+
+    @Benchmark
+    public void readingHandler() {
+        script.callEvent(readingHandler, "readingHandler", "event:readingHandler", event);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        script.disable();
+        fixture.close();
+    }
+}
@@ -0,0 +1,44 @@
+package com.polycraft.engine.benchmarks;
+
+import com.polycraft.engine.scripting.ScriptInstance;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures bringing a script up: taking a pooled context, installing the poly API and
+ * evaluating a small script, then releasing it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContextSetupBenchmark {
+
+    private BenchmarkFixture fixture;
+    private File scriptFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        fixture = new BenchmarkFixture();
+        scriptFile = fixture.writeScript("setup.js",
+                "var greeting = 'hello';\n" +
+                "poly.onEnable = function () { poly.data.get('visits'); };\n");
+    }
+
+    @Benchmark
+    public ScriptInstance loadAndClose() {
+        ScriptInstance script = fixture.newScript(scriptFile);
+        script.initialize();
+        script.disable();
+        return script;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        fixture.close();
+    }
+}
@@ -0,0 +1,73 @@
+package com.polycraft.engine.benchmarks;
+
+import com.polycraft.engine.scripting.ScriptInstance;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures script data access through {@link com.polycraft.engine.data.ScriptDataManager}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataManagerBenchmark {
+
+    private BenchmarkFixture fixture;
+    private ScriptInstance script;
+    private UUID playerId;
+    private long counter;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        fixture = new BenchmarkFixture();
+        script = fixture.loadScript("data.js", "");
+        playerId = UUID.randomUUID();
+        fixture.dataManager.set(script, "visits", 1);
+    }
+
+    @Benchmark
+    public Object getScriptValue() {
+        return fixture.dataManager.get(script, "visits", null);
+    }
+
+    /** The path taken by poly.data.set, buffered until the next flush. */
+    @Benchmark
+    public void setScriptValue() {
+        fixture.dataManager.set(script, "visits", counter++);
+    }
+
+    /** A set followed by poly.data.save, which queues a background write. */
+    @Benchmark
+    public void setAndSaveScriptValue() {
+        fixture.dataManager.set(script, "visits", counter++);
+        fixture.dataManager.saveScriptData(script);
+    }
+
+    /** The path taken by poly.data.counter(name).increment(). */
+    @Benchmark
+    public long incrementCounter() {
+        return fixture.dataManager.getCounter(script, "kills").increment();
+    }
+
+    /** The path taken by poly.data.longMap(name).add(key, delta), as a leaderboard update would. */
+    @Benchmark
+    public long addLongMapValue() {
+        return fixture.dataManager.getLongMap(script, "kills").add("player" + (counter++ & 1023), 1);
+    }
+
+    @Benchmark
+    public Object getPlayerValue() {
+        return fixture.dataManager.getPlayerData(playerId).get("visits");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        script.disable();
+        fixture.close();
+    }
+}
@@ -0,0 +1,38 @@
+package com.polycraft.engine.benchmarks;
+
+import com.polycraft.engine.scripting.ScriptEvaluator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@code /pc eval}: building a throwaway context on the shared engine and
+ * evaluating a short snippet in it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EvaluatorBenchmark {
+
+    private BenchmarkFixture fixture;
+    private ScriptEvaluator evaluator;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        fixture = new BenchmarkFixture();
+        evaluator = new ScriptEvaluator(fixture.plugin);
+    }
+
+    @Benchmark
+    public Object evaluateExpression() throws Exception {
+        return evaluator.evaluateCode("js", "[1, 2, 3].map(x => x * 2).reduce((a, b) => a + b)", null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        fixture.close();
+    }
+}
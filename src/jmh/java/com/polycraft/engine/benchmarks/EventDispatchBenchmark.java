@@ -0,0 +1,79 @@
+package com.polycraft.engine.benchmarks;
+
+import com.polycraft.engine.scripting.ScriptInstance;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.plugin.EventExecutor;
+import org.bukkit.plugin.Plugin;
+import org.mockito.ArgumentCaptor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Measures a Bukkit event travelling through the executor that EventManager registers with
+ * Bukkit, its dispatch table and the Java-side filters into the script handlers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventDispatchBenchmark {
+
+    @Param({"1", "10"})
+    public int handlers;
+
+    /** {@code match} calls every handler, {@code filtered} rejects the event in Java. */
+    @Param({"match", "filtered"})
+    public String mode;
+
+    private BenchmarkFixture fixture;
+    private ScriptInstance script;
+    private Listener listener;
+    private EventExecutor executor;
+    private PlayerMoveEvent event;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        fixture = new BenchmarkFixture();
+        clearInvocations(fixture.pluginManager);
+
+        String options = mode.equals("filtered") ? "{filter: {world: 'world_nether'}}" : "{}";
+        StringBuilder code = new StringBuilder("var moves = 0;\n");
+        for (int i = 0; i < handlers; i++) {
+            code.append("poly.on('player.PlayerMoveEvent', function (e) { moves++; }, ").append(options).append(");\n");
+        }
+        script = fixture.loadScript("dispatch.js", code.toString());
+
+        ArgumentCaptor<Listener> listenerCaptor = ArgumentCaptor.forClass(Listener.class);
+        ArgumentCaptor<EventExecutor> executorCaptor = ArgumentCaptor.forClass(EventExecutor.class);
+        verify(fixture.pluginManager, atLeastOnce()).registerEvent(eq(PlayerMoveEvent.class), listenerCaptor.capture(),
+                eq(EventPriority.NORMAL), executorCaptor.capture(), any(Plugin.class), anyBoolean());
+        listener = listenerCaptor.getValue();
+        executor = executorCaptor.getValue();
+        event = BenchmarkFixture.newMoveEvent();
+    }
+
+    @Benchmark
+    public Event dispatch() throws Exception {
+        executor.execute(listener, event);
+        return event;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        script.disable();
+        fixture.close();
+    }
+}
@@ -0,0 +1,53 @@
+package com.polycraft.engine.benchmarks;
+
+import com.polycraft.engine.scripting.ScriptLoader;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link ScriptLoader#loadScript} expanding nested {@code @require} directives.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScriptLoaderBenchmark {
+
+    @Param({"1", "8"})
+    public int dependencies;
+
+    private BenchmarkFixture fixture;
+    private ScriptLoader loader;
+    private File scriptFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        fixture = new BenchmarkFixture();
+        loader = new ScriptLoader(fixture.plugin);
+
+        StringBuilder main = new StringBuilder();
+        for (int i = 0; i < dependencies; i++) {
+            // Each library pulls in a shared helper, so the loader has to skip duplicates
+            fixture.writeScript("lib" + i + ".js",
+                    "// @require helper.js\nfunction lib" + i + "() { return helper() + " + i + "; }\n");
+            main.append("// @require lib").append(i).append(".js\n");
+        }
+        fixture.writeScript("helper.js", "function helper() { return 1; }\n");
+        main.append("poly.log('loaded');\n");
+        scriptFile = fixture.writeScript("main.js", main.toString());
+    }
+
+    @Benchmark
+    public String loadScript() throws Exception {
+        return loader.loadScript(scriptFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        fixture.close();
+    }
+}
@@ -5,15 +5,21 @@ import com.polycraft.engine.commands.PolyCraftCommand;
 import com.polycraft.engine.config.ScriptConfig;
 import com.polycraft.engine.data.ScriptDataManager;
 import com.polycraft.engine.listeners.EventManager;
+import com.polycraft.engine.metrics.TickTimings;
+import com.polycraft.engine.scripting.ContextPool;
 import com.polycraft.engine.scripting.ScriptManager;
+import com.polycraft.engine.scripting.ScriptWatchdog;
+import com.polycraft.engine.scripting.SourceCache;
+import com.polycraft.engine.shared.SharedStore;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.bukkit.scheduler.BukkitScheduler;
 
 import org.graalvm.polyglot.Context;
 import org.graalvm.polyglot.Engine;
 import org.graalvm.polyglot.HostAccess;
+import org.graalvm.polyglot.ResourceLimits;
 
-
+import java.io.File;
 import java.util.logging.Level;
 
 public final class PolyCraftEngine extends JavaPlugin {
@@ -30,6 +36,24 @@ public final class PolyCraftEngine extends JavaPlugin {
     // GraalVM Engine - единственный экземпляр на весь плагин
     private Engine graalEngine;
     
+    // Parsed sources shared by every context created on the engine
+    private SourceCache sourceCache;
+    
+    // Pre-warmed contexts on the shared engine
+    private ContextPool contextPool;
+    
+    // Statement limit applied to every script context, shared so the engine sees one configuration
+    private ResourceLimits resourceLimits;
+    
+    // Cancels script calls that exceed their time or memory budget
+    private ScriptWatchdog watchdog;
+    
+    // Per-tick attribution of main-thread script time
+    private TickTimings tickTimings;
+    
+    // Maps, queues and the message bus shared between scripts
+    private SharedStore sharedStore;
+    
     @Override
     public void onEnable() {
         instance = this;
@@ -48,7 +72,23 @@ public final class PolyCraftEngine extends JavaPlugin {
             
             // Initialize configuration and data
             this.scriptConfig = new ScriptConfig(this);
+            this.sourceCache = new SourceCache(scriptConfig.getScriptCacheSize());
+            if (scriptConfig.getMaxStatements() > 0) {
+                this.resourceLimits = ResourceLimits.newBuilder()
+                        .statementLimit(scriptConfig.getMaxStatements(), null)
+                        .build();
+            }
+            if (scriptConfig.getMaxExecutionTime() > 0 || scriptConfig.getMaxMemory() > 0) {
+                this.watchdog = new ScriptWatchdog(this, scriptConfig.getMaxExecutionTime(),
+                        scriptConfig.getMaxMemory() * 1024 * 1024);
+            }
+            if (graalEngine != null) {
+                this.contextPool = new ContextPool(this, graalEngine, scriptConfig.getContextPoolSize());
+                contextPool.prewarm("js", new File(getDataFolder(), "scripts"));
+            }
+            this.tickTimings = new TickTimings();
             this.dataManager = new ScriptDataManager(this);
+            this.sharedStore = new SharedStore(this);
             this.polyAPI = new PolyAPI(this);
             
             // Initialize managers
@@ -59,11 +99,15 @@ public final class PolyCraftEngine extends JavaPlugin {
             getCommand("polycraft").setExecutor(new PolyCraftCommand(this));
             
             // Register events
-            getServer().getPluginManager().registerEvents(eventManager, this);
+            getServer().getPluginManager().registerEvents(tickTimings, this);
+            getServer().getPluginManager().registerEvents(dataManager, this);
             
             // Save default config if it doesn't exist
             saveDefaultConfig();
             
+            // Load all scripts from the scripts folder
+            scriptManager.loadScripts();
+            
             getLogger().info("PolyCraft Engine has been enabled!");
             
         } catch (Exception e) {
@@ -79,9 +123,27 @@ public final class PolyCraftEngine extends JavaPlugin {
             scriptManager.shutdown();
         }
         
-        // Save all data
+        if (sharedStore != null) {
+            sharedStore.close();
+        }
+        
+        // Write all pending data and stop the background writer
         if (dataManager != null) {
-            dataManager.saveAll();
+            dataManager.shutdown();
+        }
+        
+        if (watchdog != null) {
+            watchdog.close();
+        }
+        
+        // Close pooled contexts before the engine
+        if (contextPool != null) {
+            contextPool.close();
+        }
+        
+        // Drop cached sources before the engine that parsed them goes away
+        if (sourceCache != null) {
+            sourceCache.invalidateAll();
         }
         
         // Close GraalVM engine
@@ -169,4 +231,52 @@ public final class PolyCraftEngine extends JavaPlugin {
     public Engine getGraalEngine() {
         return graalEngine;
     }
+    
+    /**
+     * Gets the pool of pre-warmed script contexts.
+     * @return The context pool, or null if the GraalVM engine is not available
+     */
+    public ContextPool getContextPool() {
+        return contextPool;
+    }
+    
+    /**
+     * Gets the source cache shared by all contexts on the GraalVM engine.
+     * @return The source cache
+     */
+    public SourceCache getSourceCache() {
+        return sourceCache;
+    }
+    
+    /**
+     * Gets the resource limits applied to script contexts.
+     * @return The resource limits, or null if no statement limit is configured
+     */
+    public ResourceLimits getResourceLimits() {
+        return resourceLimits;
+    }
+    
+    /**
+     * Gets the watchdog that enforces per-invocation time and memory budgets.
+     * @return The watchdog, or null if both budgets are unlimited
+     */
+    public ScriptWatchdog getWatchdog() {
+        return watchdog;
+    }
+    
+    /**
+     * Gets the per-tick attribution of main-thread script time.
+     * @return The tick timings
+     */
+    public TickTimings getTickTimings() {
+        return tickTimings;
+    }
+    
+    /**
+     * Gets the state shared between scripts.
+     * @return The shared store
+     */
+    public SharedStore getSharedStore() {
+        return sharedStore;
+    }
 }
@@ -1,7 +1,13 @@
 package com.polycraft.engine.commands;
 
 import com.polycraft.engine.PolyCraftEngine;
+import com.polycraft.engine.metrics.ExecutionStats;
+import com.polycraft.engine.metrics.LatencyHistogram;
+import com.polycraft.engine.metrics.TickTimings;
 import com.polycraft.engine.scripting.ScriptInstance;
+import com.polycraft.engine.scheduler.AsyncTaskExecutor;
+import com.polycraft.engine.scheduler.TickScheduler;
+import com.google.common.cache.CacheStats;
 import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
@@ -27,6 +33,7 @@ public class PolyCraftCommand implements CommandExecutor, TabCompleter {
         registerSubCommand("enable", this::handleEnable);
         registerSubCommand("disable", this::handleDisable);
         registerSubCommand("status", this::handleStatus);
+        registerSubCommand("timings", this::handleTimings);
         registerSubCommand("eval", this::handleEval);
         registerSubCommand("help", this::handleHelp);
     }
@@ -77,6 +84,10 @@ public class PolyCraftCommand implements CommandExecutor, TabCompleter {
             return filterCompletions(args[1], scriptNames);
         }
         
+        if (subCommand.equals("timings") && args.length == 2) {
+            return filterCompletions(args[1], Collections.singletonList("reset"));
+        }
+        
         // Tab complete languages for eval command
         if (subCommand.equals("eval") && args.length == 2) {
             return filterCompletions(args[1], 
@@ -114,6 +125,26 @@ public class PolyCraftCommand implements CommandExecutor, TabCompleter {
                     script.getLanguage().name().toLowerCase()
             ));
         }
+        
+        CacheStats playerStats = plugin.getDataManager().getPlayerCacheStats();
+        sender.sendMessage(String.format("%sPlayer data: %s%d cached, %.1f%% hits, %d evicted",
+                ChatColor.WHITE,
+                ChatColor.GRAY,
+                plugin.getDataManager().getPlayerCacheSize(),
+                playerStats.hitRate() * 100,
+                playerStats.evictionCount()
+        ));
+        
+        AsyncTaskExecutor async = plugin.getScriptManager().getScriptScheduler().getAsyncExecutor();
+        sender.sendMessage(String.format("%sAsync tasks: %s%d queued (peak %d), %d completed, %d rejected, %s threads",
+                ChatColor.WHITE,
+                ChatColor.GRAY,
+                async.getQueued(),
+                async.getPeakQueued(),
+                async.getCompleted(),
+                async.getRejected(),
+                async.isUsingVirtualThreads() ? "virtual" : "pooled"
+        ));
         return true;
     }
     
@@ -191,9 +222,103 @@ public class PolyCraftCommand implements CommandExecutor, TabCompleter {
         sender.sendMessage(ChatColor.WHITE + "Last Modified: " + ChatColor.GRAY + 
                 new Date(script.getLastModified()).toString());
         
+        AsyncTaskExecutor async = plugin.getScriptManager().getScriptScheduler().getAsyncExecutor();
+        sender.sendMessage(ChatColor.WHITE + "Async Queue: " + ChatColor.GRAY + async.getQueued(script) + " queued" +
+                (async.isRunning(script) ? ", running" : "") + ", " + script.getDroppedAsyncEvents() + " events dropped, " +
+                script.getSkippedMainThreadCalls() + " main-thread calls skipped");
+        
+        ExecutionStats total = script.getProfiler().getTotal();
+        if (total.getCount() > 0) {
+            sender.sendMessage(ChatColor.WHITE + "Invocations: " + ChatColor.GRAY + total.getCount());
+            sender.sendMessage(ChatColor.WHITE + "Wall Time: " + ChatColor.GRAY + formatNanos(total.getWallNanos()) +
+                    ChatColor.WHITE + " CPU Time: " + ChatColor.GRAY + formatNanos(total.getCpuNanos()));
+            sender.sendMessage(ChatColor.WHITE + "Latency: " + ChatColor.GRAY + formatLatency(total));
+            
+            sender.sendMessage(ChatColor.GOLD + "--- Top Entry Points ---");
+            for (Map.Entry<String, ExecutionStats> entry : script.getProfiler().getTopEntryPoints(8)) {
+                ExecutionStats stats = entry.getValue();
+                sender.sendMessage(ChatColor.YELLOW + entry.getKey() + ChatColor.GRAY + " x" + stats.getCount() +
+                        ", total " + formatNanos(stats.getWallNanos()) + ", " + formatLatency(stats));
+            }
+        }
+        
         return true;
     }
     
+    private boolean handleTimings(CommandSender sender, String[] args) {
+        TickTimings timings = plugin.getTickTimings();
+        if (args.length > 0 && args[0].equalsIgnoreCase("reset")) {
+            timings.reset();
+            sender.sendMessage(ChatColor.GREEN + "Timings reset.");
+            return true;
+        }
+        
+        int topN = 5;
+        if (args.length > 0) {
+            try {
+                topN = Math.max(1, Integer.parseInt(args[0]));
+            } catch (NumberFormatException e) {
+                sender.sendMessage(ChatColor.RED + "Usage: /pc timings [count|reset]");
+                return true;
+            }
+        }
+        
+        TickTimings.Report report = timings.report(topN);
+        sender.sendMessage(ChatColor.GOLD + "=== Script Timings (last " + report.getTicks() + " ticks) ===");
+        TickScheduler tickScheduler = plugin.getScriptManager().getScriptScheduler().getTickScheduler();
+        sender.sendMessage(ChatColor.YELLOW + "Task budget: " + ChatColor.WHITE +
+                (tickScheduler.getBudgetMillis() > 0 ? tickScheduler.getBudgetMillis() + "ms per tick" : "unlimited") +
+                ChatColor.GRAY + ", deferred last tick " + tickScheduler.getDeferredLastTick() +
+                ", total " + tickScheduler.getDeferredTotal() +
+                ", longest wait " + tickScheduler.getMaxWaitTicks() + " ticks");
+        long skipped = 0;
+        for (ScriptInstance script : plugin.getScriptManager().getLoadedScripts()) {
+            skipped += script.getSkippedMainThreadCalls();
+        }
+        sender.sendMessage(ChatColor.YELLOW + "Context contention: " + ChatColor.GRAY +
+                "waits are listed as lock-wait, " + skipped + " main-thread calls skipped");
+        if (report.getScripts().isEmpty()) {
+            sender.sendMessage(ChatColor.GRAY + "No script time recorded on the main thread.");
+            return true;
+        }
+        
+        sender.sendMessage(ChatColor.GOLD + "--- Scripts ---");
+        for (TickTimings.Entry entry : report.getScripts()) {
+            sender.sendMessage(formatTimingsEntry(entry));
+        }
+        sender.sendMessage(ChatColor.GOLD + "--- Events and Tasks ---");
+        for (TickTimings.Entry entry : report.getEntryPoints()) {
+            sender.sendMessage(formatTimingsEntry(entry));
+        }
+        return true;
+    }
+    
+    private static String formatTimingsEntry(TickTimings.Entry entry) {
+        return ChatColor.YELLOW + entry.getName() + ChatColor.GRAY +
+                String.format(" %.2f%% of tick time", entry.getShare() * 100) +
+                ", per tick p50 " + formatNanos(entry.getP50Nanos()) +
+                ", p99 " + formatNanos(entry.getP99Nanos()) +
+                ", max " + formatNanos(entry.getMaxNanos());
+    }
+    
+    private static String formatLatency(ExecutionStats stats) {
+        LatencyHistogram latency = stats.getLatency();
+        return "mean " + formatNanos(stats.getMeanNanos()) +
+                ", p50 " + formatNanos(latency.getPercentile(50)) +
+                ", p99 " + formatNanos(latency.getPercentile(99)) +
+                ", max " + formatNanos(latency.getMax());
+    }
+    
+    private static String formatNanos(long nanos) {
+        if (nanos >= 1_000_000_000L) {
+            return String.format("%.2fs", nanos / 1e9);
+        }
+        if (nanos >= 1_000_000L) {
+            return String.format("%.2fms", nanos / 1e6);
+        }
+        return String.format("%.1fus", nanos / 1e3);
+    }
+    
     private boolean handleEval(CommandSender sender, String[] args) {
         if (args.length < 2) {
             sender.sendMessage(ChatColor.RED + "Usage: /pc eval <language> <code>");
@@ -272,6 +397,7 @@ public class PolyCraftCommand implements CommandExecutor, TabCompleter {
         sender.sendMessage(ChatColor.YELLOW + "/pc enable <script>" + ChatColor.WHITE + " - Enable a script");
         sender.sendMessage(ChatColor.YELLOW + "/pc disable <script>" + ChatColor.WHITE + " - Disable a script");
         sender.sendMessage(ChatColor.YELLOW + "/pc status <script>" + ChatColor.WHITE + " - Show script status");
+        sender.sendMessage(ChatColor.YELLOW + "/pc timings [count|reset]" + ChatColor.WHITE + " - Show tick time per script");
         sender.sendMessage(ChatColor.YELLOW + "/pc eval <lang> <code>" + ChatColor.WHITE + " - Execute code");
         sender.sendMessage(ChatColor.YELLOW + "/pc help" + ChatColor.WHITE + " - Show this help");
         return true;
@@ -97,6 +97,15 @@ public class ScriptConfig {
         return config.getBoolean("debug");
     }
     
+    /**
+     * Gets how long a changed script file must stay unchanged before it is reloaded, so the
+     * several writes an editor makes per save cause a single reload.
+     * @return The debounce window in milliseconds
+     */
+    public long getReloadDebounceMillis() {
+        return config.getLong("scripts.reload-debounce-ms", 250);
+    }
+    
     public boolean isAutoUpdateEnabled() {
         return config.getBoolean("auto-update");
     }
@@ -105,6 +114,119 @@ public class ScriptConfig {
         return config.getString("language");
     }
     
+    /**
+     * Gets the time budget for a single call into a script.
+     * @return The limit in milliseconds, or 0 for unlimited
+     */
+    public long getMaxExecutionTime() {
+        return config.getLong("security.max-execution-time", 5000);
+    }
+    
+    /**
+     * Gets the allocation budget for a single call into a script.
+     * @return The limit in megabytes, or 0 for unlimited
+     */
+    public long getMaxMemory() {
+        return config.getLong("security.max-memory", 128);
+    }
+    
+    /**
+     * Gets the statement budget for a single call into a script.
+     * @return The limit, or 0 for unlimited
+     */
+    public long getMaxStatements() {
+        return config.getLong("security.max-statements", 0);
+    }
+    
+    public boolean isMetricsEnabled() {
+        return config.getBoolean("performance.enable-metrics", true);
+    }
+    
+    public int getScriptCacheSize() {
+        return config.getInt("performance.script-cache-size", 100);
+    }
+    
+    public int getContextPoolSize() {
+        return config.getInt("performance.context-pool-size", 2);
+    }
+    
+    public long getDataFlushInterval() {
+        return config.getLong("performance.data-flush-interval", 5000);
+    }
+    
+    public int getDataFlushThreshold() {
+        return config.getInt("performance.data-flush-threshold", 1000);
+    }
+    
+    /**
+     * Gets the main-thread time per tick that scheduled script tasks may use before the rest are
+     * deferred to later ticks. Unlimited by default, so tasks run on their due tick as before.
+     * @return The budget in milliseconds, or 0 for no limit
+     */
+    public long getTickBudgetMillis() {
+        return config.getLong("performance.tick-budget-ms", 0);
+    }
+    
+    /**
+     * Gets whether async script tasks may run on virtual threads when the Java runtime supports
+     * them. Per-thread CPU time and allocation cannot be measured on virtual threads, so they are
+     * only used while metrics are off and no memory budget is set.
+     * @return true to use virtual threads on Java 21 and later
+     */
+    public boolean isAsyncVirtualThreads() {
+        return config.getBoolean("performance.async-virtual-threads", true);
+    }
+    
+    /**
+     * Gets how long a main-thread call into a script waits while the script's async lane is in
+     * its context, before the call is skipped.
+     * @return The wait in milliseconds, or 0 to wait as long as it takes
+     */
+    public long getMainThreadLockWaitMillis() {
+        return Math.max(0, config.getLong("performance.main-thread-lock-wait-ms", 50));
+    }
+    
+    /**
+     * Gets the most async tasks, event snapshots and calls a script may have waiting at once.
+     * Each script runs one async task at a time, so this replaces a per-script thread count.
+     * @return The queue limit per script
+     */
+    public int getAsyncQueuePerScript() {
+        return Math.max(1, config.getInt("performance.async-queue-per-script", 4096));
+    }
+    
+    /**
+     * Gets the storage format for script data.
+     * @return {@code yaml} or {@code log}
+     */
+    public String getDataStorage() {
+        return config.getString("performance.data-storage", "yaml");
+    }
+    
+    public int getPlayerDataCacheSize() {
+        return config.getInt("performance.player-data-cache-size", 1000);
+    }
+    
+    /**
+     * Gets how long an unused player data file stays cached.
+     * @return The idle time in minutes, or 0 to keep files until the cache is full
+     */
+    public long getPlayerDataIdleMinutes() {
+        return config.getLong("performance.player-data-idle-minutes", 15);
+    }
+    
+    /**
+     * Gets the number of worker threads used to load scripts in parallel.
+     * @return The configured thread count, or a value based on available processors if unset
+     */
+    public int getBootstrapThreads() {
+        int threads = config.getInt("performance.bootstrap-threads", 0);
+        if (threads > 0) {
+            return threads;
+        }
+        return Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+    }
+    
     /**
      * Get a configuration value by key.
      * @param key The configuration key
@@ -0,0 +1,180 @@
+package com.polycraft.engine.data;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * The counters and long maps of one script, saved together as a binary snapshot.
+ * <p>
+ * Snapshot layout: {@code int magic, int version, int counterCount, (string name, long value)*,
+ * int mapCount, (string name, int size, (string key, long value)*)*, int crc32}, where the CRC
+ * covers everything before it.
+ */
+final class CounterStore {
+
+    private static final int MAGIC = 0x50435443; // "PCTC"
+    private static final int VERSION = 1;
+
+    private final Map<String, DataCounter> counters = new ConcurrentHashMap<>();
+    private final Map<String, LongMap> longMaps = new ConcurrentHashMap<>();
+
+    DataCounter counter(String name) {
+        return counters.computeIfAbsent(name, n -> new DataCounter(0));
+    }
+
+    LongMap longMap(String name) {
+        return longMaps.computeIfAbsent(name, n -> new LongMap());
+    }
+
+    /**
+     * @return true if anything changed since the last committed snapshot
+     */
+    boolean isChanged() {
+        for (DataCounter counter : counters.values()) {
+            if (counter.isChanged()) {
+                return true;
+            }
+        }
+        for (LongMap map : longMaps.values()) {
+            if (map.isChanged()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Serializes the current contents. Each map is copied under its own lock, so updates made while
+     * the snapshot is taken land either in it or in the next one.
+     */
+    Snapshot snapshot() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        List<Runnable> commits = new ArrayList<>();
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+
+        List<Map.Entry<String, DataCounter>> counterEntries = new ArrayList<>(counters.entrySet());
+        out.writeInt(counterEntries.size());
+        for (Map.Entry<String, DataCounter> entry : counterEntries) {
+            DataCounter counter = entry.getValue();
+            long value = counter.get();
+            writeString(out, entry.getKey());
+            out.writeLong(value);
+            commits.add(() -> counter.markSaved(value));
+        }
+
+        List<Map.Entry<String, LongMap>> mapEntries = new ArrayList<>(longMaps.entrySet());
+        out.writeInt(mapEntries.size());
+        for (Map.Entry<String, LongMap> entry : mapEntries) {
+            LongMap map = entry.getValue();
+            // Entries are buffered separately because the size is only known once they are counted
+            ByteArrayOutputStream entryBytes = new ByteArrayOutputStream();
+            DataOutputStream entryOut = new DataOutputStream(entryBytes);
+            int[] size = new int[1];
+            long modCount = map.forEach((key, value) -> {
+                writeString(entryOut, key);
+                entryOut.writeLong(value);
+                size[0]++;
+            });
+            writeString(out, entry.getKey());
+            out.writeInt(size[0]);
+            entryBytes.writeTo(out);
+            commits.add(() -> map.markSaved(modCount));
+        }
+
+        CRC32 crc = new CRC32();
+        byte[] body = bytes.toByteArray();
+        crc.update(body);
+        out.writeInt((int) crc.getValue());
+        return new Snapshot(bytes.toByteArray(), commits);
+    }
+
+    /**
+     * Reads a snapshot written by {@link #snapshot()}.
+     * @throws IOException If the data is truncated or fails its checksum
+     */
+    static CounterStore read(byte[] data) throws IOException {
+        if (data.length < 12) {
+            throw new IOException("Counter snapshot is truncated");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length - 4);
+        ByteBuffer in = ByteBuffer.wrap(data);
+        if (in.getInt(data.length - 4) != (int) crc.getValue()) {
+            throw new IOException("Counter snapshot failed its checksum");
+        }
+        if (in.getInt() != MAGIC) {
+            throw new IOException("Not a PolyCraft counter snapshot");
+        }
+        int version = in.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported counter snapshot version " + version);
+        }
+
+        CounterStore store = new CounterStore();
+        int counterCount = in.getInt();
+        for (int i = 0; i < counterCount; i++) {
+            String name = readString(in);
+            store.counters.put(name, new DataCounter(in.getLong()));
+        }
+        int mapCount = in.getInt();
+        for (int i = 0; i < mapCount; i++) {
+            String name = readString(in);
+            int size = in.getInt();
+            LongMap map = new LongMap(size);
+            for (int j = 0; j < size; j++) {
+                String key = readString(in);
+                map.put(key, in.getLong());
+            }
+            map.markSaved(map.getModCount());
+            store.longMaps.put(name, map);
+        }
+        return store;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Serialized contents that become the saved state once written.
+     */
+    static final class Snapshot {
+        private final byte[] bytes;
+        private final List<Runnable> commits;
+
+        private Snapshot(byte[] bytes, List<Runnable> commits) {
+            this.bytes = bytes;
+            this.commits = commits;
+        }
+
+        byte[] getBytes() {
+            return bytes;
+        }
+
+        /**
+         * Marks the snapshotted values as saved. Call after the bytes are on disk.
+         */
+        void commit() {
+            commits.forEach(Runnable::run);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.polycraft.engine.data;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A persistent long counter returned by {@code poly.data.counter(name)}.
+ * <p>
+ * Updates are single atomic operations on a primitive, so counting does not allocate. The value
+ * is written to disk by the periodic snapshot of its {@link CounterStore}.
+ */
+public final class DataCounter {
+
+    private final AtomicLong value;
+    private volatile long savedValue;
+
+    DataCounter(long value) {
+        this.value = new AtomicLong(value);
+        this.savedValue = value;
+    }
+
+    public long get() {
+        return value.get();
+    }
+
+    /**
+     * @return The new value
+     */
+    public long increment() {
+        return value.incrementAndGet();
+    }
+
+    /**
+     * @return The new value
+     */
+    public long decrement() {
+        return value.decrementAndGet();
+    }
+
+    /**
+     * @param delta The amount to add, which may be negative
+     * @return The new value
+     */
+    public long add(long delta) {
+        return value.addAndGet(delta);
+    }
+
+    public void set(long newValue) {
+        value.set(newValue);
+    }
+
+    /**
+     * Sets the value to zero.
+     * @return The value before the reset
+     */
+    public long reset() {
+        return value.getAndSet(0);
+    }
+
+    boolean isChanged() {
+        return value.get() != savedValue;
+    }
+
+    void markSaved(long saved) {
+        savedValue = saved;
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(value.get());
+    }
+}
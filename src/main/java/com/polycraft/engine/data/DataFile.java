@@ -0,0 +1,209 @@
+package com.polycraft.engine.data;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The contents of one data file, safe to read and write from any thread.
+ * <p>
+ * Values are kept in a concurrent map keyed by their full dotted path, so reads never take a
+ * lock and writers to different keys never contend. The file is only converted to its on-disk
+ * format by a {@link DataStorage} when it is loaded or flushed. Writing a map stores its leaves under the key's path, and
+ * reading a path that only has children returns them assembled into a map, which matches how
+ * nested sections behave in YAML.
+ * <p>
+ * Files handed out by {@link ScriptDataManager} are read-only to other code; writes go through
+ * {@link ScriptDataManager#set} and {@link ScriptDataManager#setPlayerValue} so they get flushed.
+ */
+public class DataFile {
+
+    private final String name;
+    private final Map<String, Object> values = new ConcurrentHashMap<>();
+    private final Set<String> sectionPaths = ConcurrentHashMap.newKeySet();
+    private final Set<String> dirtyKeys = ConcurrentHashMap.newKeySet();
+
+    DataFile(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Object get(String key) {
+        return get(key, null);
+    }
+
+    /**
+     * @param key The dotted path to read
+     * @param def The value to return if nothing is stored at or below the path
+     * @return The stored value, a map of the values below the path, or the default
+     */
+    public Object get(String key, Object def) {
+        Object value = values.get(key);
+        if (value != null) {
+            return value;
+        }
+        if (sectionPaths.contains(key)) {
+            Map<String, Object> section = getSection(key);
+            if (!section.isEmpty()) {
+                return section;
+            }
+        }
+        return def;
+    }
+
+    /**
+     * @return true if a value is stored at or below the path
+     */
+    public boolean contains(String key) {
+        return get(key) != null;
+    }
+
+    /**
+     * @return The stored paths of all leaf values
+     */
+    public Set<String> getKeys() {
+        return Collections.unmodifiableSet(values.keySet());
+    }
+
+    /**
+     * Sets a value and marks the key dirty. Only {@link ScriptDataManager} writes through this,
+     * since it also has to queue the file for the next flush.
+     * @param key The dotted path to write
+     * @param value The value, or null to remove the path and everything below it
+     * @return true if the key was not already dirty
+     */
+    boolean set(String key, Object value) {
+        apply(key, value);
+        return dirtyKeys.add(key);
+    }
+
+    /**
+     * Sets a value without marking it dirty. Used by storages to replay stored data.
+     */
+    void apply(String key, Object value) {
+        // A path holds either a value or a section; clear whatever the write replaces
+        int dot = key.indexOf('.');
+        while (dot > 0) {
+            values.remove(key.substring(0, dot));
+            dot = key.indexOf('.', dot + 1);
+        }
+        if (sectionPaths.contains(key)) {
+            String prefix = key + ".";
+            values.keySet().removeIf(k -> k.startsWith(prefix));
+        }
+
+        if (value == null || value instanceof Map) {
+            values.remove(key);
+        }
+        if (value != null) {
+            put(key, value);
+        }
+    }
+
+    /**
+     * Removes all values without marking anything dirty. Used by storages to replay stored data.
+     */
+    void clear() {
+        values.clear();
+        sectionPaths.clear();
+    }
+
+    /**
+     * @return true if there are changes that have not been flushed
+     */
+    public boolean isDirty() {
+        return !dirtyKeys.isEmpty();
+    }
+
+    /**
+     * Marks the whole file as needing a write.
+     * @return true if the file was clean before
+     */
+    boolean markDirty() {
+        return dirtyKeys.add("");
+    }
+
+    /**
+     * Takes the set of changed keys, leaving the file clean.
+     */
+    Set<String> drainDirtyKeys() {
+        Set<String> drained = new HashSet<>();
+        for (Iterator<String> it = dirtyKeys.iterator(); it.hasNext(); ) {
+            drained.add(it.next());
+            it.remove();
+        }
+        return drained;
+    }
+
+    /**
+     * @return A live view of all leaf values keyed by their full path
+     */
+    Map<String, Object> getValues() {
+        return Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * Gets the leaf values stored at or below a path.
+     * @return The leaf at the path, or the leaves below it keyed by their full path
+     */
+    Map<String, Object> getLeaves(String key) {
+        Object value = values.get(key);
+        if (value != null) {
+            return Collections.singletonMap(key, value);
+        }
+        if (!sectionPaths.contains(key)) {
+            return Collections.emptyMap();
+        }
+        String prefix = key + ".";
+        Map<String, Object> leaves = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            if (entry.getKey().startsWith(prefix)) {
+                leaves.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return leaves;
+    }
+
+    private void put(String key, Object value) {
+        if (value instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (entry.getValue() != null) {
+                    put(key + "." + entry.getKey(), entry.getValue());
+                }
+            }
+            return;
+        }
+        values.put(key, value);
+        int dot = key.indexOf('.');
+        while (dot > 0) {
+            sectionPaths.add(key.substring(0, dot));
+            dot = key.indexOf('.', dot + 1);
+        }
+    }
+
+    private Map<String, Object> getSection(String key) {
+        String prefix = key + ".";
+        Map<String, Object> section = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            if (entry.getKey().startsWith(prefix)) {
+                insert(section, entry.getKey().substring(prefix.length()), entry.getValue());
+            }
+        }
+        return section;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void insert(Map<String, Object> section, String path, Object value) {
+        int dot = path.indexOf('.');
+        if (dot < 0) {
+            section.put(path, value);
+            return;
+        }
+        Object child = section.computeIfAbsent(path.substring(0, dot), k -> new LinkedHashMap<String, Object>());
+        if (child instanceof Map) {
+            insert((Map<String, Object>) child, path.substring(dot + 1), value);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.polycraft.engine.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Reads and writes {@link DataFile}s on disk.
+ * <p>
+ * Files are identified by their name relative to the data folder, such as
+ * {@code example.js.yml} or {@code players/3f/<uuid>.yml}; each storage maps names to its own
+ * files. {@link ScriptDataManager} calls {@link #write} from a single thread at a time, while
+ * {@link #load} may be called from any thread.
+ */
+public interface DataStorage extends Closeable {
+
+    /**
+     * Loads a data file.
+     * @param name The file name
+     * @return The stored data, or an empty data file if nothing is stored under the name
+     * @throws IOException If the stored data cannot be read
+     */
+    DataFile load(String name) throws IOException;
+
+    /**
+     * @param name The file name
+     * @return true if data is stored under the name
+     */
+    boolean exists(String name);
+
+    /**
+     * Writes the changes made to a data file.
+     * @param name The file name
+     * @param dataFile The data file holding the current values
+     * @param changedKeys The paths changed since the last write; an empty path means the whole file
+     * @throws IOException If the data cannot be written
+     */
+    void write(String name, DataFile dataFile, Set<String> changedKeys) throws IOException;
+
+    /**
+     * Drops any state kept for a file that is no longer cached. It is loaded again on next use.
+     * @param name The file name
+     */
+    default void release(String name) {
+    }
+
+    @Override
+    default void close() throws IOException {
+    }
+}
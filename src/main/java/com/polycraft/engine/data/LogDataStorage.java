@@ -0,0 +1,475 @@
+package com.polycraft.engine.data;
+
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Stores each data file as an append-only binary log.
+ * <p>
+ * A write appends one record per changed path instead of rewriting the file, so the cost of a
+ * flush depends on how much changed rather than on how much is stored. An in-memory index maps
+ * every live path to the record that holds it. Once less than half of a log is live, the live
+ * records are copied into a fresh log that replaces the old one. Logs are read through a memory
+ * mapping, and every record carries a CRC32 so a record torn by a crash is cut off on the next
+ * load instead of corrupting the rest of the file.
+ * <p>
+ * Record layout: {@code int length, int crc, byte op, string path, [value]}, where the CRC and
+ * length cover everything after them.
+ */
+class LogDataStorage implements DataStorage {
+
+    static final String EXTENSION = ".dat";
+
+    private static final int MAGIC = 0x50434C47; // "PCLG"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_OVERHEAD = 8;
+    private static final long MIN_COMPACT_SIZE = 1024 * 1024;
+
+    private static final byte OP_SET = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final byte OP_CLEAR = 3;
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_TRUE = 1;
+    private static final byte TYPE_FALSE = 2;
+    private static final byte TYPE_INT = 3;
+    private static final byte TYPE_LONG = 4;
+    private static final byte TYPE_DOUBLE = 5;
+    private static final byte TYPE_STRING = 6;
+    private static final byte TYPE_LIST = 7;
+    private static final byte TYPE_MAP = 8;
+    private static final byte TYPE_SERIALIZABLE = 9;
+
+    private final File folder;
+    private final Logger logger;
+    private final Map<String, Log> logs = new ConcurrentHashMap<>();
+
+    LogDataStorage(File folder, Logger logger) {
+        this.folder = folder;
+        this.logger = logger;
+    }
+
+    @Override
+    public DataFile load(String name) throws IOException {
+        return getLog(name).load(name);
+    }
+
+    @Override
+    public boolean exists(String name) {
+        return fileFor(name).exists();
+    }
+
+    @Override
+    public void write(String name, DataFile dataFile, Set<String> changedKeys) throws IOException {
+        getLog(name).append(dataFile, changedKeys);
+    }
+
+    @Override
+    public void release(String name) {
+        Log log = logs.get(name);
+        if (log != null) {
+            log.release();
+        }
+    }
+
+    private Log getLog(String name) {
+        // Logs are never removed so every file keeps a single lock
+        return logs.computeIfAbsent(name, n -> new Log(fileFor(n)));
+    }
+
+    private File fileFor(String name) {
+        String base = name.endsWith(".yml") ? name.substring(0, name.length() - 4) : name;
+        return new File(folder, base + EXTENSION);
+    }
+
+    /**
+     * One log file and the index of its live records.
+     */
+    private final class Log {
+        private final File file;
+        /** Live paths mapped to {offset, length} of the record holding their value. */
+        private TreeMap<String, long[]> index;
+        private long size;
+        private long liveBytes;
+
+        Log(File file) {
+            this.file = file;
+        }
+
+        synchronized DataFile load(String name) throws IOException {
+            DataFile dataFile = new DataFile(name);
+            replay(dataFile);
+            return dataFile;
+        }
+
+        synchronized void release() {
+            index = null;
+        }
+
+        synchronized void append(DataFile dataFile, Set<String> changedKeys) throws IOException {
+            if (index == null) {
+                replay(null);
+            }
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            long base = size;
+            try {
+                if (base == 0) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(VERSION);
+                }
+                if (changedKeys.contains("")) {
+                    appendRecord(out, bytes, base, OP_CLEAR, "", null);
+                    for (Map.Entry<String, Object> entry : dataFile.getValues().entrySet()) {
+                        appendRecord(out, bytes, base, OP_SET, entry.getKey(), entry.getValue());
+                    }
+                } else {
+                    for (String key : changedKeys) {
+                        Map<String, Object> leaves = dataFile.getLeaves(key);
+                        if (leaves.size() == 1 && leaves.containsKey(key)) {
+                            appendRecord(out, bytes, base, OP_SET, key, leaves.get(key));
+                            continue;
+                        }
+                        // A section or a removed path: drop everything under it, then store the leaves
+                        appendRecord(out, bytes, base, OP_REMOVE, key, null);
+                        for (Map.Entry<String, Object> leaf : leaves.entrySet()) {
+                            appendRecord(out, bytes, base, OP_SET, leaf.getKey(), leaf.getValue());
+                        }
+                    }
+                }
+
+                Files.createDirectories(file.getParentFile().toPath());
+                try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                    // Writing at the known end also overwrites a torn tail that could not be truncated
+                    channel.position(base);
+                    ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    size = base + bytes.size();
+                    if (channel.size() > size) {
+                        channel.truncate(size);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                // The index already reflects records that may not have been written
+                index = null;
+                throw e;
+            }
+
+            if (size >= MIN_COMPACT_SIZE && liveBytes * 2 < size) {
+                try {
+                    compact();
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, "Could not compact " + file.getName(), e);
+                }
+            }
+        }
+
+        /**
+         * Rebuilds the index from the file, loading values into the target if one is given.
+         */
+        private void replay(DataFile target) throws IOException {
+            index = new TreeMap<>();
+            liveBytes = 0;
+            size = 0;
+            if (!file.exists()) {
+                return;
+            }
+
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                long length = channel.size();
+                if (length < HEADER_SIZE) {
+                    // Nothing was stored; the next append rewrites the header
+                    return;
+                }
+                if (length > Integer.MAX_VALUE) {
+                    throw new IOException(file.getName() + " is too large to map");
+                }
+
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+                if (buffer.getInt() != MAGIC) {
+                    throw new IOException(file.getName() + " is not a PolyCraft data log");
+                }
+                int version = buffer.getInt();
+                if (version != VERSION) {
+                    throw new IOException(file.getName() + " has unsupported version " + version);
+                }
+
+                CRC32 crc = new CRC32();
+                int end = HEADER_SIZE;
+                while (buffer.remaining() >= RECORD_OVERHEAD) {
+                    int offset = buffer.position();
+                    int payloadLength = buffer.getInt();
+                    int checksum = buffer.getInt();
+                    if (payloadLength <= 0 || payloadLength > buffer.remaining()) {
+                        break;
+                    }
+                    ByteBuffer payload = buffer.slice();
+                    payload.limit(payloadLength);
+                    crc.reset();
+                    crc.update(payload.duplicate());
+                    if ((int) crc.getValue() != checksum) {
+                        break;
+                    }
+
+                    byte op = payload.get();
+                    String path = readString(payload);
+                    applyToIndex(op, path, offset, RECORD_OVERHEAD + payloadLength);
+                    if (target != null) {
+                        if (op == OP_CLEAR) {
+                            target.clear();
+                        } else {
+                            target.apply(path, op == OP_SET ? readValue(payload) : null);
+                        }
+                    }
+
+                    end = offset + RECORD_OVERHEAD + payloadLength;
+                    buffer.position(end);
+                }
+
+                size = end;
+                if (end < length) {
+                    logger.warning("Discarding " + (length - end) + " unreadable bytes at the end of " + file.getName());
+                    try {
+                        channel.truncate(end);
+                    } catch (IOException e) {
+                        // Some platforms refuse to truncate a mapped file; the next append overwrites the tail
+                        logger.log(Level.FINE, "Could not truncate " + file.getName(), e);
+                    }
+                }
+            } catch (IOException e) {
+                index = null;
+                throw e;
+            } catch (RuntimeException e) {
+                index = null;
+                throw new IOException("Corrupt data log " + file.getName(), e);
+            }
+        }
+
+        /**
+         * Copies the live records into a new log and replaces the old one with it.
+         */
+        private void compact() throws IOException {
+            Path directory = file.getParentFile().toPath();
+            Path temp = Files.createTempFile(directory, file.getName(), ".tmp");
+            try {
+                TreeMap<String, long[]> compacted = new TreeMap<>();
+                long position = HEADER_SIZE;
+                try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+                     FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION);
+                    header.flip();
+                    while (header.hasRemaining()) {
+                        out.write(header);
+                    }
+                    // Live records never overlap, so their order does not matter
+                    for (Map.Entry<String, long[]> entry : index.entrySet()) {
+                        long offset = entry.getValue()[0];
+                        long length = entry.getValue()[1];
+                        long copied = 0;
+                        while (copied < length) {
+                            copied += in.transferTo(offset + copied, length - copied, out);
+                        }
+                        compacted.put(entry.getKey(), new long[]{position, length});
+                        position += length;
+                    }
+                    out.force(true);
+                }
+
+                try {
+                    Files.move(temp, file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+                index = compacted;
+                size = position;
+                liveBytes = position - HEADER_SIZE;
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+
+        private void appendRecord(DataOutputStream out, ByteArrayOutputStream bytes, long base,
+                                  byte op, String path, Object value) throws IOException {
+            ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream();
+            DataOutputStream payload = new DataOutputStream(payloadBytes);
+            payload.writeByte(op);
+            writeString(payload, path);
+            if (op == OP_SET) {
+                writeValue(payload, value);
+            }
+
+            byte[] record = payloadBytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(record);
+            long offset = base + bytes.size();
+            out.writeInt(record.length);
+            out.writeInt((int) crc.getValue());
+            out.write(record);
+            applyToIndex(op, path, offset, RECORD_OVERHEAD + record.length);
+        }
+
+        private void applyToIndex(byte op, String path, long offset, int length) {
+            if (op == OP_CLEAR) {
+                index.clear();
+                liveBytes = 0;
+                return;
+            }
+
+            // Mirrors DataFile.apply: a write replaces the path, its ancestors' values and its children
+            removeFromIndex(path);
+            int dot = path.indexOf('.');
+            while (dot > 0) {
+                removeFromIndex(path.substring(0, dot));
+                dot = path.indexOf('.', dot + 1);
+            }
+            SortedMap<String, long[]> children = index.subMap(path + ".", path + "/");
+            for (long[] record : children.values()) {
+                liveBytes -= record[1];
+            }
+            children.clear();
+
+            if (op == OP_SET) {
+                index.put(path, new long[]{offset, length});
+                liveBytes += length;
+            }
+        }
+
+        private void removeFromIndex(String path) {
+            long[] record = index.remove(path);
+            if (record != null) {
+                liveBytes -= record[1];
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TYPE_NULL);
+        } else if (value instanceof Boolean) {
+            out.writeByte((Boolean) value ? TYPE_TRUE : TYPE_FALSE);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.writeByte(TYPE_INT);
+            out.writeInt(((Number) value).intValue());
+        } else if (value instanceof Long) {
+            out.writeByte(TYPE_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Number) {
+            out.writeByte(TYPE_DOUBLE);
+            out.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof String) {
+            out.writeByte(TYPE_STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Collection) {
+            Collection<?> list = (Collection<?>) value;
+            out.writeByte(TYPE_LIST);
+            out.writeInt(list.size());
+            for (Object element : list) {
+                writeValue(out, element);
+            }
+        } else if (value instanceof Map) {
+            out.writeByte(TYPE_MAP);
+            writeMap(out, (Map<?, ?>) value);
+        } else if (value instanceof ConfigurationSerializable) {
+            // Same form YAML uses, so items, locations and the like survive a round trip
+            Map<String, Object> serialized = new LinkedHashMap<>();
+            serialized.put(ConfigurationSerialization.SERIALIZED_TYPE_KEY,
+                    ConfigurationSerialization.getAlias(((ConfigurationSerializable) value).getClass()));
+            serialized.putAll(((ConfigurationSerializable) value).serialize());
+            out.writeByte(TYPE_SERIALIZABLE);
+            writeMap(out, serialized);
+        } else {
+            out.writeByte(TYPE_STRING);
+            writeString(out, String.valueOf(value));
+        }
+    }
+
+    private static void writeMap(DataOutputStream out, Map<?, ?> map) throws IOException {
+        out.writeInt(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            writeString(out, String.valueOf(entry.getKey()));
+            writeValue(out, entry.getValue());
+        }
+    }
+
+    private static Object readValue(ByteBuffer in) {
+        byte type = in.get();
+        switch (type) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_TRUE:
+                return true;
+            case TYPE_FALSE:
+                return false;
+            case TYPE_INT:
+                return in.getInt();
+            case TYPE_LONG:
+                return in.getLong();
+            case TYPE_DOUBLE:
+                return in.getDouble();
+            case TYPE_STRING:
+                return readString(in);
+            case TYPE_LIST: {
+                int size = in.getInt();
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                return list;
+            }
+            case TYPE_MAP:
+                return readMap(in);
+            case TYPE_SERIALIZABLE: {
+                Map<String, Object> serialized = readMap(in);
+                Object value = ConfigurationSerialization.deserializeObject(serialized);
+                return value != null ? value : serialized;
+            }
+            default:
+                throw new IllegalStateException("Unknown value type " + type);
+        }
+    }
+
+    private static Map<String, Object> readMap(ByteBuffer in) {
+        int size = in.getInt();
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            String key = readString(in);
+            map.put(key, readValue(in));
+        }
+        return map;
+    }
+}
@@ -0,0 +1,279 @@
+package com.polycraft.engine.data;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A persistent map from string keys to long values returned by {@code poly.data.longMap(name)}.
+ * <p>
+ * Entries live in two parallel arrays with open addressing and linear probing, so values are
+ * never boxed and updating an existing key does not allocate. Every operation is atomic. The
+ * contents are written to disk by the periodic snapshot of its {@link CounterStore}.
+ */
+public final class LongMap {
+
+    private static final int MIN_CAPACITY = 16;
+    private static final int MAX_LOAD_PERCENT = 60;
+
+    private String[] keys;
+    private long[] values;
+    private int size;
+    private long modCount;
+    private long savedModCount;
+
+    LongMap() {
+        this(MIN_CAPACITY);
+    }
+
+    LongMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * MAX_LOAD_PERCENT / 100 < expectedSize) {
+            capacity <<= 1;
+        }
+        this.keys = new String[capacity];
+        this.values = new long[capacity];
+    }
+
+    /**
+     * @return The value for the key, or 0 if it has none
+     */
+    public long get(String key) {
+        return get(key, 0);
+    }
+
+    /**
+     * @return The value for the key, or the default if it has none
+     */
+    public synchronized long get(String key, long def) {
+        int slot = find(key);
+        return slot >= 0 ? values[slot] : def;
+    }
+
+    public synchronized boolean containsKey(String key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * @return The previous value, or 0 if the key had none
+     */
+    public synchronized long put(String key, long value) {
+        int slot = slotFor(key);
+        long previous = values[slot];
+        values[slot] = value;
+        modCount++;
+        return previous;
+    }
+
+    /**
+     * Adds to the value for a key, starting from 0 if it has none.
+     * @return The new value
+     */
+    public synchronized long add(String key, long delta) {
+        int slot = slotFor(key);
+        values[slot] += delta;
+        modCount++;
+        return values[slot];
+    }
+
+    /**
+     * @return The new value
+     */
+    public long increment(String key) {
+        return add(key, 1);
+    }
+
+    /**
+     * @return true if the key had a value
+     */
+    public synchronized boolean remove(String key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return false;
+        }
+
+        // Shift later entries of the probe sequence back so lookups never hit a gap
+        int mask = keys.length - 1;
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (keys[next] != null) {
+            int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = null;
+        values[gap] = 0;
+        size--;
+        modCount++;
+        return true;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(keys, null);
+        Arrays.fill(values, 0);
+        size = 0;
+        modCount++;
+    }
+
+    public synchronized List<String> keys() {
+        List<String> result = new ArrayList<>(size);
+        for (String key : keys) {
+            if (key != null) {
+                result.add(key);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the entries with the highest values, for leaderboards.
+     * @param limit The maximum number of entries
+     * @return The entries in descending order of value
+     */
+    public synchronized List<Entry> top(int limit) {
+        int count = Math.min(Math.max(limit, 0), size);
+        // Keep the best entries in a small sorted array; cheap for the usual top-10 sized limits
+        int[] best = new int[count];
+        int filled = 0;
+        for (int slot = 0; slot < keys.length && count > 0; slot++) {
+            if (keys[slot] == null || (filled == count && values[slot] <= values[best[count - 1]])) {
+                continue;
+            }
+            int i = filled < count ? filled++ : count - 1;
+            while (i > 0 && values[best[i - 1]] < values[slot]) {
+                best[i] = best[i - 1];
+                i--;
+            }
+            best[i] = slot;
+        }
+
+        List<Entry> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(new Entry(keys[best[i]], values[best[i]]));
+        }
+        return result;
+    }
+
+    /**
+     * Calls the consumer for every entry while holding the map's lock.
+     * @return The modification count the entries belong to
+     */
+    synchronized long forEach(EntryConsumer consumer) throws IOException {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != null) {
+                consumer.accept(keys[slot], values[slot]);
+            }
+        }
+        return modCount;
+    }
+
+    synchronized long getModCount() {
+        return modCount;
+    }
+
+    synchronized boolean isChanged() {
+        return modCount != savedModCount;
+    }
+
+    synchronized void markSaved(long saved) {
+        savedModCount = saved;
+    }
+
+    private int find(String key) {
+        if (key == null) {
+            return -1;
+        }
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != null) {
+            if (keys[slot].equals(key)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the slot for a key, inserting it with value 0 if it is missing.
+     */
+    private int slotFor(String key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != null) {
+            if (keys[slot].equals(key)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if ((size + 1) * 100 > keys.length * MAX_LOAD_PERCENT) {
+            resize(keys.length << 1);
+            return slotFor(key);
+        }
+        keys[slot] = key;
+        values[slot] = 0;
+        size++;
+        return slot;
+    }
+
+    private void resize(int capacity) {
+        String[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new String[capacity];
+        values = new long[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int hash(String key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    interface EntryConsumer {
+        void accept(String key, long value) throws IOException;
+    }
+
+    /**
+     * A key and its value at the time it was read.
+     */
+    public static final class Entry {
+        private final String key;
+        private final long value;
+
+        Entry(String key, long value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public long getValue() {
+            return value;
+        }
+    }
+}
@@ -2,37 +2,137 @@ package com.polycraft.engine.data;
 
 import com.polycraft.engine.PolyCraftEngine;
 import com.polycraft.engine.scripting.ScriptInstance;
-import org.bukkit.configuration.file.FileConfiguration;
-import org.bukkit.configuration.file.YamlConfiguration;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Manages persistent data storage for scripts.
+ * <p>
+ * Data files are {@link DataFile}s, which can be read and written from any thread without
+ * locking. Writes are buffered: a changed key marks its file dirty, and dirty files are written
+ * by a background thread every flush interval, or sooner once the number of distinct dirty keys
+ * reaches the flush threshold. Repeated writes to the same key between flushes cost a single
+ * write. {@link #shutdown()} flushes everything synchronously.
+ * <p>
+ * Files are read and written by a {@link DataStorage} chosen by {@code performance.data-storage}:
+ * YAML files by default, or an append-only binary log for scripts that keep large amounts of
+ * data. Switching to the log migrates existing YAML files on startup.
+ * <p>
+ * Counters and long maps from {@code poly.data.counter} and {@code poly.data.longMap} are kept
+ * per script in a {@link CounterStore} and saved as a binary snapshot by the same flushes, when
+ * they have changed. They stay loaded for the lifetime of the plugin because scripts hold on to
+ * them.
+ * <p>
+ * Player files are spread over 256 subdirectories of {@code players/} by the first byte of the
+ * UUID's hash, so the folder stays small on servers with many unique players. Files from the old
+ * flat layout are read on first access and moved on their next write.
+ * <p>
+ * Player files are held in a cache bounded by size and idle time. Files are loaded off the main
+ * thread while a player logs in and released when they quit. A file that is evicted with
+ * unwritten changes stays reachable until the flush that writes it, so loading the player again
+ * in the meantime returns the same file rather than stale data from disk.
  */
-public class ScriptDataManager {
-    
+public class ScriptDataManager implements Listener {
+
+    private static final long DEFAULT_FLUSH_INTERVAL = 5000;
+    private static final int DEFAULT_FLUSH_THRESHOLD = 1000;
+    private static final int DEFAULT_PLAYER_CACHE_SIZE = 1000;
+
     private final PolyCraftEngine plugin;
     private final File dataFolder;
-    private final Map<String, FileConfiguration> dataCache = new HashMap<>();
-    
+    private final DataStorage storage;
+    private final Map<String, DataFile> dataCache = new ConcurrentHashMap<>();
+    private final LoadingCache<UUID, DataFile> playerCache;
+    private final Map<UUID, DataFile> evictedPlayers = new ConcurrentHashMap<>();
+    private final Map<String, CounterStore> counterStores = new ConcurrentHashMap<>();
+    private final Set<DataFile> dirtyFiles = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger dirtyCount = new AtomicInteger();
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+    private final int flushThreshold;
+    private final ScheduledExecutorService flusher;
+
     public ScriptDataManager(PolyCraftEngine plugin) {
         this.plugin = plugin;
         this.dataFolder = new File(plugin.getDataFolder(), "data");
-        
+
         // Create data directory if it doesn't exist
         if (!dataFolder.exists()) {
             dataFolder.mkdirs();
         }
+
+        if ("log".equalsIgnoreCase(plugin.getScriptConfig().getDataStorage())) {
+            this.storage = new LogDataStorage(dataFolder, plugin.getLogger());
+            migrateYamlFiles();
+        } else {
+            this.storage = new YamlDataStorage(dataFolder);
+        }
+
+        long flushInterval = plugin.getScriptConfig().getDataFlushInterval();
+        if (flushInterval <= 0) {
+            flushInterval = DEFAULT_FLUSH_INTERVAL;
+        }
+        int threshold = plugin.getScriptConfig().getDataFlushThreshold();
+        this.flushThreshold = threshold > 0 ? threshold : DEFAULT_FLUSH_THRESHOLD;
+
+        int playerCacheSize = plugin.getScriptConfig().getPlayerDataCacheSize();
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+                .maximumSize(playerCacheSize > 0 ? playerCacheSize : DEFAULT_PLAYER_CACHE_SIZE)
+                .recordStats();
+        long idleMinutes = plugin.getScriptConfig().getPlayerDataIdleMinutes();
+        if (idleMinutes > 0) {
+            builder.expireAfterAccess(idleMinutes, TimeUnit.MINUTES);
+        }
+        this.playerCache = builder
+                .<UUID, DataFile>removalListener(this::onPlayerDataRemoved)
+                .build(new CacheLoader<UUID, DataFile>() {
+                    @Override
+                    public DataFile load(UUID playerId) {
+                        DataFile pending = evictedPlayers.remove(playerId);
+                        return pending != null ? pending : loadPlayerData(playerId);
+                    }
+                });
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "PolyCraft-DataFlush");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
     }
-    
+
     /**
-     * Loads data from the specified file.
+     * Loads data from the specified YAML file.
      * @param file The file to load data from
      * @return true if the data was loaded successfully, false otherwise
      */
@@ -40,91 +140,403 @@ public class ScriptDataManager {
         if (file == null || !file.exists()) {
             return false;
         }
-        
+
         try {
             String fileName = file.getName();
-            FileConfiguration config = YamlConfiguration.loadConfiguration(file);
-            dataCache.put(fileName, config);
+            dataCache.put(fileName, YamlDataStorage.load(fileName, file));
             return true;
         } catch (Exception e) {
             plugin.getLogger().log(Level.SEVERE, "Failed to load data from " + file.getName(), e);
             return false;
         }
     }
-    
+
+    /**
+     * Get or create the data file for a script. Write to it through {@link #set}.
+     * @param script The script instance
+     * @return The data file for the script
+     */
+    public DataFile getScriptData(ScriptInstance script) {
+        return dataCache.computeIfAbsent(getFileName(script), this::loadData);
+    }
+
+    /**
+     * Get a value from a script's data.
+     * @param script The script instance
+     * @param key The key to read
+     * @param def The value to return if the key is not set
+     * @return The stored value, or the default
+     */
+    public Object get(ScriptInstance script, String key, Object def) {
+        return getScriptData(script).get(key, def);
+    }
+
+    /**
+     * Get a value from a script's data without blocking on disk. A file that is already loaded
+     * is read on the calling thread; otherwise it is loaded on the data thread.
+     * @param script The script instance
+     * @param key The key to read
+     * @param def The value to return if the key is not set
+     * @return A future completed with the stored value, or the default
+     */
+    public CompletableFuture<Object> getAsync(ScriptInstance script, String key, Object def) {
+        DataFile dataFile = dataCache.get(getFileName(script));
+        if (dataFile != null) {
+            return CompletableFuture.completedFuture(dataFile.get(key, def));
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> get(script, key, def), flusher);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
     /**
-     * Get or create a data file for a script.
+     * Set a value in a script's data. The change is written to disk by the next flush.
      * @param script The script instance
-     * @return The configuration file for the script
+     * @param key The key to write
+     * @param value The value, which must not reference script objects, or null to remove the key
      */
-    public FileConfiguration getScriptData(ScriptInstance script) {
-        String fileName = script.getScriptFile().getName() + ".yml";
-        return getDataFile(fileName);
+    public void set(ScriptInstance script, String key, Object value) {
+        set(getScriptData(script), key, value);
     }
-    
+
+    /**
+     * Get or create a persistent counter for a script.
+     * @param script The script instance
+     * @param name The counter name
+     * @return The counter, shared by every caller using the same name
+     */
+    public DataCounter getCounter(ScriptInstance script, String name) {
+        return getCounterStore(script).counter(name);
+    }
+
     /**
-     * Get or create a data file for a player.
+     * Get or create a persistent map of long values for a script.
+     * @param script The script instance
+     * @param name The map name
+     * @return The map, shared by every caller using the same name
+     */
+    public LongMap getLongMap(ScriptInstance script, String name) {
+        return getCounterStore(script).longMap(name);
+    }
+
+    /**
+     * Get or create the data file for a player. Write to it through {@link #setPlayerValue}.
      * @param playerId The player's UUID
-     * @return The configuration file for the player
+     * @return The data file for the player
      */
-    public FileConfiguration getPlayerData(UUID playerId) {
-        return getDataFile("players/" + playerId + ".yml");
+    public DataFile getPlayerData(UUID playerId) {
+        return playerCache.getUnchecked(playerId);
     }
-    
+
     /**
-     * Save all modified data files.
+     * @return Hit, miss and eviction counts for the player data cache
      */
-    public void saveAll() {
-        for (Map.Entry<String, FileConfiguration> entry : dataCache.entrySet()) {
-            saveDataFile(entry.getKey(), entry.getValue());
+    public CacheStats getPlayerCacheStats() {
+        return playerCache.stats();
+    }
+
+    /**
+     * @return The number of player data files currently cached
+     */
+    public long getPlayerCacheSize() {
+        return playerCache.size();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPreLogin(AsyncPlayerPreLoginEvent event) {
+        // Runs off the main thread, so the file is read before scripts first ask for it
+        if (event.getLoginResult() == AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            getPlayerData(event.getUniqueId());
         }
     }
-    
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        playerCache.invalidate(event.getPlayer().getUniqueId());
+    }
+
     /**
-     * Save a specific data file.
+     * Set a value in a player's data. The change is written to disk by the next flush.
+     * @param playerId The player's UUID
+     * @param key The key to write
+     * @param value The value, which must not reference script objects, or null to remove the key
+     */
+    public void setPlayerValue(UUID playerId, String key, Object value) {
+        set(getPlayerData(playerId), key, value);
+    }
+
+    /**
+     * Save all modified data files on the calling thread.
+     */
+    public void saveAll() {
+        flush();
+    }
+
+    /**
+     * Request that a script's data file is written soon. Returns without waiting for the write.
      * @param script The script to save data for
      */
     public void saveScriptData(ScriptInstance script) {
-        String fileName = script.getScriptFile().getName() + ".yml";
-        FileConfiguration config = dataCache.get(fileName);
-        if (config != null) {
-            saveDataFile(fileName, config);
+        DataFile dataFile = dataCache.get(getFileName(script));
+        if (dataFile != null) {
+            markDirty(dataFile);
+            requestFlush();
+        }
+    }
+
+    /**
+     * Write a script's data file now on the data thread.
+     * @param script The script to save data for
+     * @return A future completed once the file and any other pending changes are on disk
+     */
+    public CompletableFuture<Void> saveAsync(ScriptInstance script) {
+        DataFile dataFile = dataCache.get(getFileName(script));
+        if (dataFile != null) {
+            markDirty(dataFile);
+        }
+        try {
+            return CompletableFuture.runAsync(this::flush, flusher);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
         }
     }
-    
+
     /**
      * Clear the data cache.
      */
     public void clearCache() {
         saveAll();
         dataCache.clear();
+        playerCache.invalidateAll();
     }
-    
-    private FileConfiguration getDataFile(String fileName) {
-        // Return from cache if available
-        if (dataCache.containsKey(fileName)) {
-            return dataCache.get(fileName);
-        }
-        
-        // Create parent directories if they don't exist
-        File dataFile = new File(dataFolder, fileName);
-        if (!dataFile.getParentFile().exists()) {
-            dataFile.getParentFile().mkdirs();
-        }
-        
-        // Load or create the configuration
-        FileConfiguration config = YamlConfiguration.loadConfiguration(dataFile);
-        dataCache.put(fileName, config);
-        
-        return config;
-    }
-    
-    private void saveDataFile(String fileName, FileConfiguration config) {
+
+    /**
+     * Stop the background writer and write all pending changes. Called when the plugin is disabled.
+     */
+    public void shutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+
+        try {
+            storage.close();
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Error closing script data storage", e);
+        }
+    }
+
+    /**
+     * @return The number of distinct keys changed since the last flush
+     */
+    public int getDirtyCount() {
+        return dirtyCount.get();
+    }
+
+    private void set(DataFile dataFile, String key, Object value) {
+        boolean newlyDirty = dataFile.set(key, value);
+        dirtyFiles.add(dataFile);
+        if (newlyDirty && dirtyCount.incrementAndGet() >= flushThreshold) {
+            requestFlush();
+        }
+    }
+
+    private void onPlayerDataRemoved(RemovalNotification<UUID, DataFile> notification) {
+        DataFile dataFile = notification.getValue();
+        if (notification.getCause() == RemovalCause.REPLACED || dataFile == null) {
+            return;
+        }
+        if (dataFile.isDirty()) {
+            evictedPlayers.put(notification.getKey(), dataFile);
+            requestFlush();
+        } else {
+            storage.release(dataFile.getName());
+        }
+    }
+
+    private void markDirty(DataFile dataFile) {
+        if (dataFile.markDirty()) {
+            dirtyCount.incrementAndGet();
+        }
+        dirtyFiles.add(dataFile);
+    }
+
+    private void requestFlush() {
+        if (!flusher.isShutdown() && flushQueued.compareAndSet(false, true)) {
+            flusher.execute(this::flushQuietly);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            plugin.getLogger().log(Level.SEVERE, "Error flushing script data", e);
+        }
+    }
+
+    /**
+     * Writes every dirty file. Serialized so two flushes never race on the same file.
+     */
+    private synchronized void flush() {
+        flushQueued.set(false);
+        for (DataFile dataFile : dirtyFiles) {
+            dirtyFiles.remove(dataFile);
+            Set<String> keys = dataFile.drainDirtyKeys();
+            dirtyCount.addAndGet(-keys.size());
+            if (keys.isEmpty()) {
+                continue;
+            }
+
+            try {
+                write(dataFile, keys);
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.SEVERE, "Could not save data to " + dataFile.getName(), e);
+                // Keep the file dirty so the next flush retries it
+                markDirty(dataFile);
+            }
+        }
+
+        for (Map.Entry<String, CounterStore> entry : counterStores.entrySet()) {
+            if (!entry.getValue().isChanged()) {
+                continue;
+            }
+            try {
+                CounterStore.Snapshot snapshot = entry.getValue().snapshot();
+                YamlDataStorage.writeAtomically(new File(dataFolder, entry.getKey()), snapshot.getBytes());
+                snapshot.commit();
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.SEVERE, "Could not save counters to " + entry.getKey(), e);
+            }
+        }
+
+        // Evicted player files are no longer needed once their changes are on disk
+        evictedPlayers.values().removeIf(dataFile -> {
+            if (dataFile.isDirty()) {
+                return false;
+            }
+            storage.release(dataFile.getName());
+            return true;
+        });
+    }
+
+    private void write(DataFile dataFile, Set<String> keys) throws IOException {
+        String name = dataFile.getName();
+        storage.write(name, dataFile, keys);
+
+        // Drop the copy left in the old flat player layout once the sharded file exists
+        if (name.startsWith("players/")) {
+            Files.deleteIfExists(new File(dataFolder, "players/" + name.substring(name.lastIndexOf('/') + 1)).toPath());
+        }
+    }
+
+    private DataFile loadData(String name) {
         try {
-            File dataFile = new File(dataFolder, fileName);
-            config.save(dataFile);
+            return storage.load(name);
         } catch (IOException e) {
-            plugin.getLogger().log(Level.SEVERE, "Could not save data to " + fileName, e);
+            plugin.getLogger().log(Level.SEVERE, "Could not load data from " + name, e);
+            return new DataFile(name);
+        }
+    }
+
+    private CounterStore getCounterStore(ScriptInstance script) {
+        return counterStores.computeIfAbsent(script.getScriptFile().getName() + ".counters", this::loadCounters);
+    }
+
+    private CounterStore loadCounters(String name) {
+        File file = new File(dataFolder, name);
+        if (!file.exists()) {
+            return new CounterStore();
+        }
+        try {
+            return CounterStore.read(Files.readAllBytes(file.toPath()));
+        } catch (IOException e) {
+            // Keep the damaged file for inspection instead of overwriting it with the next snapshot
+            plugin.getLogger().log(Level.SEVERE, "Could not load counters from " + name + ", starting empty", e);
+            try {
+                Files.move(file.toPath(), new File(dataFolder, name + ".corrupt").toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException moveError) {
+                plugin.getLogger().log(Level.WARNING, "Could not move aside " + name, moveError);
+            }
+            return new CounterStore();
+        }
+    }
+
+    private DataFile loadPlayerData(UUID playerId) {
+        String name = getPlayerFileName(playerId);
+        if (!storage.exists(name)) {
+            File legacy = new File(dataFolder, "players/" + playerId + ".yml");
+            if (legacy.exists()) {
+                // Written out in full by the next flush, which also removes the legacy file
+                DataFile dataFile = YamlDataStorage.load(name, legacy);
+                markDirty(dataFile);
+                return dataFile;
+            }
         }
+        return loadData(name);
+    }
+
+    /**
+     * Moves YAML data files into the log storage. The YAML files are kept with a
+     * {@code .migrated} suffix.
+     */
+    private void migrateYamlFiles() {
+        Path root = dataFolder.toPath();
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(root)) {
+            files = paths.filter(path -> path.toString().endsWith(".yml") && Files.isRegularFile(path))
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Could not scan " + dataFolder + " for YAML data", e);
+            return;
+        }
+
+        int migrated = 0;
+        for (Path path : files) {
+            String name = getMigratedName(root.relativize(path).toString().replace(File.separatorChar, '/'));
+            if (storage.exists(name)) {
+                continue;
+            }
+            try {
+                storage.write(name, YamlDataStorage.load(name, path.toFile()), Collections.singleton(""));
+                storage.release(name);
+                Files.move(path, path.resolveSibling(path.getFileName() + ".migrated"), StandardCopyOption.REPLACE_EXISTING);
+                migrated++;
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.SEVERE, "Could not migrate data from " + name, e);
+            }
+        }
+        if (migrated > 0) {
+            plugin.getLogger().info("Migrated " + migrated + " YAML data files to the log storage");
+        }
+    }
+
+    /**
+     * Maps player files from the old flat layout to their sharded name.
+     */
+    private static String getMigratedName(String name) {
+        if (name.startsWith("players/") && name.indexOf('/', "players/".length()) < 0) {
+            try {
+                return getPlayerFileName(UUID.fromString(name.substring("players/".length(), name.length() - 4)));
+            } catch (IllegalArgumentException e) {
+                return name;
+            }
+        }
+        return name;
+    }
+
+    private static String getFileName(ScriptInstance script) {
+        return script.getScriptFile().getName() + ".yml";
+    }
+
+    private static String getPlayerFileName(UUID playerId) {
+        int hash = playerId.hashCode();
+        int shard = (hash ^ (hash >>> 16)) & 0xFF;
+        return String.format("players/%02x/%s.yml", shard, playerId);
     }
 }
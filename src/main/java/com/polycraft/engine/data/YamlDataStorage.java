@@ -0,0 +1,81 @@
+package com.polycraft.engine.data;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Stores each data file as a YAML file. Every write rewrites the whole file, replacing it through
+ * an atomic rename so a crash never leaves a half-written file behind.
+ */
+class YamlDataStorage implements DataStorage {
+
+    private final File folder;
+
+    YamlDataStorage(File folder) {
+        this.folder = folder;
+    }
+
+    @Override
+    public DataFile load(String name) {
+        return load(name, new File(folder, name));
+    }
+
+    @Override
+    public boolean exists(String name) {
+        return new File(folder, name).exists();
+    }
+
+    @Override
+    public void write(String name, DataFile dataFile, Set<String> changedKeys) throws IOException {
+        YamlConfiguration yaml = new YamlConfiguration();
+        dataFile.getValues().forEach(yaml::set);
+        writeAtomically(new File(folder, name), yaml.saveToString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Loads a YAML file into a data file.
+     * @param name The name of the data file
+     * @param file The file to read; a missing file gives an empty data file
+     */
+    static DataFile load(String name, File file) {
+        DataFile dataFile = new DataFile(name);
+        if (file.exists()) {
+            YamlConfiguration yaml = YamlConfiguration.loadConfiguration(file);
+            for (Map.Entry<String, Object> entry : yaml.getValues(true).entrySet()) {
+                if (!(entry.getValue() instanceof ConfigurationSection)) {
+                    dataFile.apply(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        return dataFile;
+    }
+
+    /**
+     * Writes to a temporary file next to the target and renames it over the target.
+     */
+    static void writeAtomically(File target, byte[] content) throws IOException {
+        Path directory = target.getParentFile().toPath();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, target.getName(), ".tmp");
+        try {
+            Files.write(temp, content);
+            try {
+                Files.move(temp, target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -20,13 +20,15 @@ public class ScriptEventManager {
     }
 
     public <T extends Event> void registerEvent(Class<T> eventClass, ScriptEventHandler handler, ScriptInstance script) {
-        if (eventClass == null || handler == null || script == null) {
-            throw new IllegalArgumentException("Event class, handler, and script must not be null");
+        registerEvent(eventClass, handler, script, EventPriority.NORMAL, false);
+    }
+
+    public <T extends Event> void registerEvent(Class<T> eventClass, ScriptEventHandler handler, ScriptInstance script,
+                                                EventPriority priority, boolean ignoreCancelled) {
+        if (eventClass == null || handler == null || script == null || priority == null) {
+            throw new IllegalArgumentException("Event class, handler, script and priority must not be null");
         }
         
-        EventPriority priority = EventPriority.NORMAL;
-        boolean ignoreCancelled = false;
-        
         // Create the event executor
         EventExecutor executor = (listener, event) -> {
             if (eventClass.isInstance(event)) {
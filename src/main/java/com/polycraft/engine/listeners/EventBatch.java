@@ -0,0 +1,137 @@
+package com.polycraft.engine.listeners;
+
+import org.bukkit.event.Event;
+import org.bukkit.event.block.BlockEvent;
+import org.bukkit.event.entity.EntityEvent;
+import org.bukkit.event.player.PlayerEvent;
+import org.bukkit.event.vehicle.VehicleEvent;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A fixed-size ring buffer of events for one batched handler, drained once per tick.
+ * <p>
+ * When a coalescing key is set, a new event replaces the buffered event with the same key
+ * in place, so a batch holds at most one event per subject in arrival order of first sight.
+ * When the buffer is full the oldest event is dropped.
+ * <p>
+ * The buffer holds the event objects themselves, which are handed to the script only after the
+ * events have finished firing, so they are effectively read-only.
+ */
+class EventBatch {
+
+    private static final Object[] EMPTY = new Object[0];
+
+    private final Object[] events;
+    private final Object[] keys;
+    private final Function<Event, Object> keyExtractor;
+    private final Map<Object, Integer> slotByKey;
+    private int head = 0;
+    private int size = 0;
+    private long dropped = 0;
+
+    EventBatch(int capacity, String coalesceKey) {
+        this.events = new Object[capacity];
+        this.keyExtractor = coalesceKey != null ? keyExtractor(coalesceKey) : null;
+        this.keys = keyExtractor != null ? new Object[capacity] : null;
+        this.slotByKey = keyExtractor != null ? new HashMap<>() : null;
+    }
+
+    synchronized void add(Event event) {
+        Object key = null;
+        if (keyExtractor != null) {
+            key = keyExtractor.apply(event);
+            if (key != null) {
+                Integer slot = slotByKey.get(key);
+                if (slot != null) {
+                    events[slot] = event;
+                    return;
+                }
+            }
+        }
+
+        int capacity = events.length;
+        if (size == capacity) {
+            // Overwrite the oldest entry
+            if (keys != null && keys[head] != null) {
+                slotByKey.remove(keys[head]);
+            }
+            head = (head + 1) % capacity;
+            size--;
+            dropped++;
+        }
+
+        int slot = (head + size) % capacity;
+        events[slot] = event;
+        if (keys != null) {
+            keys[slot] = key;
+            if (key != null) {
+                slotByKey.put(key, slot);
+            }
+        }
+        size++;
+    }
+
+    /**
+     * Removes and returns the buffered events, oldest first.
+     */
+    synchronized Object[] drain() {
+        if (size == 0) {
+            return EMPTY;
+        }
+
+        Object[] batch = new Object[size];
+        int capacity = events.length;
+        for (int i = 0; i < size; i++) {
+            int slot = (head + i) % capacity;
+            batch[i] = events[slot];
+            events[slot] = null;
+            if (keys != null) {
+                keys[slot] = null;
+            }
+        }
+        if (slotByKey != null) {
+            slotByKey.clear();
+        }
+        head = 0;
+        size = 0;
+        return batch;
+    }
+
+    synchronized long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Gets the function that extracts the coalescing key for the given key name.
+     * @param name {@code player}, {@code entity} or {@code block}
+     */
+    static Function<Event, Object> keyExtractor(String name) {
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "player":
+                return event -> event instanceof PlayerEvent
+                        ? ((PlayerEvent) event).getPlayer().getUniqueId() : null;
+            case "entity":
+                return event -> {
+                    if (event instanceof PlayerEvent) {
+                        return ((PlayerEvent) event).getPlayer().getUniqueId();
+                    }
+                    if (event instanceof EntityEvent) {
+                        return ((EntityEvent) event).getEntity().getUniqueId();
+                    }
+                    if (event instanceof VehicleEvent) {
+                        return ((VehicleEvent) event).getVehicle().getUniqueId();
+                    }
+                    return null;
+                };
+            case "block":
+                return event -> event instanceof BlockEvent
+                        ? ((BlockEvent) event).getBlock().getLocation() : null;
+            default:
+                throw new IllegalArgumentException("Unknown coalesce key: " + name);
+        }
+    }
+}
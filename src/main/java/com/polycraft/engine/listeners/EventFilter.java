@@ -0,0 +1,150 @@
+package com.polycraft.engine.listeners;
+
+import org.bukkit.World;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.EntityEvent;
+import org.bukkit.event.inventory.InventoryInteractEvent;
+import org.bukkit.event.player.PlayerEvent;
+import org.bukkit.event.vehicle.VehicleEvent;
+import org.bukkit.event.world.WorldEvent;
+import org.bukkit.permissions.Permissible;
+
+import java.util.*;
+
+/**
+ * A declarative pre-filter for script event handlers, evaluated in Java so that events
+ * which don't match never enter the script context.
+ * <p>
+ * Each condition is optional. An event that a condition cannot be applied to (for example,
+ * a world filter on an event without a world) does not match.
+ */
+public class EventFilter {
+
+    private final Set<String> worlds;
+    private final Set<EntityType> entityTypes;
+    private final String permission;
+
+    private EventFilter(Builder builder) {
+        this.worlds = builder.worlds.isEmpty() ? null : Collections.unmodifiableSet(new HashSet<>(builder.worlds));
+        this.entityTypes = builder.entityTypes.isEmpty() ? null : Collections.unmodifiableSet(EnumSet.copyOf(builder.entityTypes));
+        this.permission = builder.permission;
+    }
+
+    /**
+     * Checks whether the event passes every configured condition.
+     * @param event The event to test
+     * @return true if the handler should be called
+     */
+    public boolean test(Event event) {
+        if (worlds != null) {
+            World world = getWorld(event);
+            if (world == null || !worlds.contains(world.getName().toLowerCase(Locale.ROOT))) {
+                return false;
+            }
+        }
+
+        if (entityTypes != null) {
+            EntityType entityType = getEntityType(event);
+            if (entityType == null || !entityTypes.contains(entityType)) {
+                return false;
+            }
+        }
+
+        if (permission != null) {
+            Permissible subject = getSubject(event);
+            if (subject == null || !subject.hasPermission(permission)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static World getWorld(Event event) {
+        if (event instanceof PlayerEvent) {
+            return ((PlayerEvent) event).getPlayer().getWorld();
+        }
+        if (event instanceof EntityEvent) {
+            return ((EntityEvent) event).getEntity().getWorld();
+        }
+        if (event instanceof BlockEvent) {
+            return ((BlockEvent) event).getBlock().getWorld();
+        }
+        if (event instanceof VehicleEvent) {
+            return ((VehicleEvent) event).getVehicle().getWorld();
+        }
+        if (event instanceof WorldEvent) {
+            return ((WorldEvent) event).getWorld();
+        }
+        return null;
+    }
+
+    private static EntityType getEntityType(Event event) {
+        if (event instanceof PlayerEvent) {
+            return EntityType.PLAYER;
+        }
+        if (event instanceof EntityEvent) {
+            return ((EntityEvent) event).getEntityType();
+        }
+        if (event instanceof VehicleEvent) {
+            return ((VehicleEvent) event).getVehicle().getType();
+        }
+        return null;
+    }
+
+    private static Permissible getSubject(Event event) {
+        if (event instanceof PlayerEvent) {
+            return ((PlayerEvent) event).getPlayer();
+        }
+        if (event instanceof EntityEvent && ((EntityEvent) event).getEntity() instanceof Player) {
+            return (Player) ((EntityEvent) event).getEntity();
+        }
+        if (event instanceof BlockBreakEvent) {
+            return ((BlockBreakEvent) event).getPlayer();
+        }
+        if (event instanceof BlockPlaceEvent) {
+            return ((BlockPlaceEvent) event).getPlayer();
+        }
+        if (event instanceof InventoryInteractEvent) {
+            return ((InventoryInteractEvent) event).getWhoClicked();
+        }
+        return null;
+    }
+
+    /**
+     * Builder for creating event filters.
+     */
+    public static class Builder {
+        private final Set<String> worlds = new HashSet<>();
+        private final Set<EntityType> entityTypes = new HashSet<>();
+        private String permission;
+
+        public Builder world(String world) {
+            this.worlds.add(world.toLowerCase(Locale.ROOT));
+            return this;
+        }
+
+        public Builder entityType(EntityType entityType) {
+            this.entityTypes.add(entityType);
+            return this;
+        }
+
+        public Builder permission(String permission) {
+            this.permission = permission;
+            return this;
+        }
+
+        public boolean isEmpty() {
+            return worlds.isEmpty() && entityTypes.isEmpty() && permission == null;
+        }
+
+        public EventFilter build() {
+            return new EventFilter(this);
+        }
+    }
+}
@@ -1,99 +1,515 @@
 package com.polycraft.engine.listeners;
 
+import com.google.common.reflect.ClassPath;
 import com.polycraft.engine.PolyCraftEngine;
 import com.polycraft.engine.scripting.ScriptInstance;
 import org.bukkit.event.*;
 import org.bukkit.plugin.EventExecutor;
+import org.bukkit.scheduler.BukkitTask;
+import org.graalvm.polyglot.Value;
 
+import java.io.IOException;
+import java.lang.reflect.Method;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+/**
+ * Routes Bukkit events to script handlers.
+ * <p>
+ * Handlers are registered for an event class and receive that class and all of its subclasses.
+ * Bukkit is told about each handler list once per priority; the concrete event class is then
+ * looked up in that priority's dispatch table, which holds the flattened handlers of every
+ * registered supertype. Entries are built on first use and dropped only for the classes
+ * affected by a registration change.
+ * <p>
+ * Bukkit fires an event only on the handler list of the class that declares it, so a handler for
+ * a supertype is bound to the supertype's own list, if it has one, and to the list of every known
+ * subclass that declares its own, such as {@code PlayerInteractAtEntityEvent} under
+ * {@code PlayerInteractEntityEvent}. This makes abstract supertypes like {@code PlayerEvent}
+ * usable. Known subclasses are the Bukkit and Paper events on the server classpath plus every
+ * event class registered so far, so subclasses defined by other plugins are only reached once a
+ * script has listened to them directly. A class with no list anywhere is rejected.
+ * <p>
+ * {@code ignoreCancelled} and {@link EventFilter} conditions are checked per handler in Java,
+ * before the event is passed into the script context.
+ * <p>
+ * Batched handlers buffer matching events in an {@link EventBatch} and are called once per tick
+ * with an array of everything received since the previous call. The events have already finished
+ * firing by then, so batched handlers can only read them; cancelling or modifying a batched event
+ * does nothing. Async handlers get an
+ * {@link EventSnapshot} taken on the main thread and run on the script's own async lane, so they
+ * cannot modify or cancel the event. They still use the script's single context: while one runs,
+ * main-thread handlers of the same script wait for it, and are skipped if it takes longer than
+ * {@code performance.main-thread-lock-wait-ms}.
+ */
+public class EventManager {
+
+    private static final ScriptHandler[] NO_HANDLERS = new ScriptHandler[0];
+    private static final String[] EVENT_PACKAGES = {
+        "org.bukkit.event", "io.papermc.paper.event", "com.destroystokyo.paper.event"
+    };
 
-public class EventManager implements Listener, EventExecutor {
-    
     private final PolyCraftEngine plugin;
-    private final Map<Class<? extends Event>, Set<ScriptHandler>> handlers = new ConcurrentHashMap<>();
-    private final Map<ScriptInstance, Set<Class<? extends Event>>> scriptEvents = new ConcurrentHashMap<>();
-    
+    private final Map<Class<? extends Event>, ScriptHandler[]> registered = new ConcurrentHashMap<>();
+    private final Map<EventPriority, Map<Class<? extends Event>, ScriptHandler[]>> dispatchTables = new EnumMap<>(EventPriority.class);
+    private final Map<Class<? extends Event>, Map<EventPriority, HandlerListBinding>> bindings = new ConcurrentHashMap<>();
+    private final Map<ScriptInstance, Set<ScriptHandler>> scriptHandlers = new ConcurrentHashMap<>();
+    private final Set<ScriptHandler> batchedHandlers = ConcurrentHashMap.newKeySet();
+    private final Map<Class<? extends Event>, Class<? extends Event>[]> listClasses = new HashMap<>();
+    private Set<Class<? extends Event>> knownListClasses;
+    private BukkitTask flushTask;
+    private long sequence = 0;
+
     public EventManager(PolyCraftEngine plugin) {
         this.plugin = plugin;
+        for (EventPriority priority : EventPriority.values()) {
+            dispatchTables.put(priority, new ConcurrentHashMap<>());
+        }
     }
-    
-    public void registerEvent(Class<? extends Event> eventClass, ScriptInstance script, String handlerName) {
-        // Create handler if it doesn't exist
-        handlers.computeIfAbsent(eventClass, k -> ConcurrentHashMap.newKeySet())
-                .add(new ScriptHandler(script, handlerName));
-        
-        // Track events per script for cleanup
-        scriptEvents.computeIfAbsent(script, k -> ConcurrentHashMap.newKeySet())
-                   .add(eventClass);
-        
-        // Register with Bukkit if first handler for this event
-        if (handlers.get(eventClass).size() == 1) {
+
+    /**
+     * Registers a script function as a handler for an event class and its subclasses
+     * at normal priority.
+     * @param eventClass The event class to listen to
+     * @param script The script that owns the handler
+     * @param handlerName The handler name used in log messages
+     * @param function The script function, resolved once at registration
+     * @return The registered handler, which doubles as the token to unregister it
+     */
+    public ScriptHandler registerEvent(Class<? extends Event> eventClass, ScriptInstance script, String handlerName, Value function) {
+        return registerEvent(eventClass, script, handlerName, function, HandlerOptions.DEFAULT);
+    }
+
+    /**
+     * Registers a script function as a handler for an event class and its subclasses.
+     * @param eventClass The event class to listen to
+     * @param script The script that owns the handler
+     * @param handlerName The handler name used in log messages
+     * @param function The script function, resolved once at registration
+     * @param options The priority, filtering and batching options
+     * @return The registered handler, which doubles as the token to unregister it
+     * @throws IllegalArgumentException If neither the class nor any known subclass has a handler list
+     */
+    public synchronized ScriptHandler registerEvent(Class<? extends Event> eventClass, ScriptInstance script, String handlerName,
+                                                    Value function, HandlerOptions options) {
+        EventPriority priority = options.getPriority();
+
+        // Register with Bukkit if first handler for each handler list and priority
+        Class<? extends Event>[] lists = getListClasses(eventClass);
+        HandlerListBinding[] handlerBindings = new HandlerListBinding[lists.length];
+        for (int i = 0; i < lists.length; i++) {
+            handlerBindings[i] = bind(lists[i], priority);
+        }
+
+        ScriptHandler handler = new ScriptHandler(eventClass, script, handlerName, function, options, sequence++);
+        handler.bindings = handlerBindings;
+        if (handler.batch != null) {
+            batchedHandlers.add(handler);
+            startFlushTask();
+        }
+
+        // Track handlers per script for cleanup
+        scriptHandlers.computeIfAbsent(script, k -> ConcurrentHashMap.newKeySet()).add(handler);
+
+        ScriptHandler[] current = registered.getOrDefault(eventClass, NO_HANDLERS);
+        ScriptHandler[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = handler;
+        registered.put(eventClass, updated);
+        invalidate(priority, eventClass);
+
+        return handler;
+    }
+
+    /**
+     * Gets the binding for a handler list and priority, registering it with Bukkit if it is the
+     * first, and counts one more handler on it.
+     */
+    private HandlerListBinding bind(Class<? extends Event> listClass, EventPriority priority) {
+        Map<EventPriority, HandlerListBinding> listBindings = bindings.computeIfAbsent(listClass, k -> new EnumMap<>(EventPriority.class));
+        HandlerListBinding binding = listBindings.get(priority);
+        if (binding == null) {
+            binding = new HandlerListBinding(listClass, priority);
             plugin.getServer().getPluginManager().registerEvent(
-                eventClass, this, EventPriority.NORMAL, this, plugin, false
+                listClass, binding, priority, binding, plugin, false
             );
+            listBindings.put(priority, binding);
+        }
+        binding.handlerCount++;
+        return binding;
+    }
+
+    public synchronized void unregisterEvents(ScriptInstance script) {
+        Set<ScriptHandler> handlers = scriptHandlers.remove(script);
+        if (handlers != null) {
+            for (ScriptHandler handler : handlers) {
+                removeHandler(handler);
+            }
         }
     }
     
-    public void unregisterEvents(ScriptInstance script) {
-        Set<Class<? extends Event>> events = scriptEvents.remove(script);
-        if (events != null) {
-            for (Class<? extends Event> eventClass : events) {
-                Set<ScriptHandler> eventHandlers = handlers.get(eventClass);
-                if (eventHandlers != null) {
-                    eventHandlers.removeIf(handler -> handler.script == script);
-                    
-                    // Unregister from Bukkit if no more handlers
-                    if (eventHandlers.isEmpty()) {
-                        HandlerList.unregisterAll(this);
-                        handlers.remove(eventClass);
+    /**
+     * Unregisters a single handler, leaving the script's other handlers untouched.
+     * @param handler The handler returned by {@link #registerEvent}
+     */
+    public synchronized void unregister(ScriptHandler handler) {
+        Set<ScriptHandler> handlers = scriptHandlers.get(handler.script);
+        if (handlers != null) {
+            handlers.remove(handler);
+            if (handlers.isEmpty()) {
+                scriptHandlers.remove(handler.script, handlers);
+            }
+        }
+        removeHandler(handler);
+    }
+
+    private void removeHandler(ScriptHandler handler) {
+        if (handler.batch != null && batchedHandlers.remove(handler) && batchedHandlers.isEmpty()) {
+            stopFlushTask();
+        }
+
+        ScriptHandler[] current = registered.get(handler.eventClass);
+        if (current == null) {
+            return;
+        }
+
+        ScriptHandler[] updated = Arrays.stream(current)
+                .filter(h -> h != handler)
+                .toArray(ScriptHandler[]::new);
+        if (updated.length == current.length) {
+            return;
+        }
+
+        if (updated.length == 0) {
+            registered.remove(handler.eventClass);
+        } else {
+            registered.put(handler.eventClass, updated);
+        }
+        invalidate(handler.priority, handler.eventClass);
+
+        // Unregister from Bukkit if no more handlers, touching only this handler's lists
+        for (HandlerListBinding binding : handler.bindings) {
+            if (--binding.handlerCount == 0) {
+                binding.handlerList.unregister(binding);
+                Map<EventPriority, HandlerListBinding> listBindings = bindings.get(binding.listClass);
+                if (listBindings != null) {
+                    listBindings.remove(binding.priority, binding);
+                    if (listBindings.isEmpty()) {
+                        bindings.remove(binding.listClass);
                     }
                 }
             }
         }
     }
-    
-    @Override
-    public void execute(Listener listener, Event event) {
-        Set<ScriptHandler> eventHandlers = handlers.get(event.getClass());
-        if (eventHandlers != null) {
-            for (ScriptHandler handler : eventHandlers) {
+
+    private void startFlushTask() {
+        if (flushTask == null) {
+            flushTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::flushBatches, 1L, 1L);
+        }
+    }
+
+    private void stopFlushTask() {
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+    }
+
+    /**
+     * Delivers the events buffered during the last tick to each batched handler.
+     */
+    private void flushBatches() {
+        for (ScriptHandler handler : batchedHandlers) {
+            Object[] events = handler.batch.drain();
+            if (events.length == 0) {
+                continue;
+            }
+            try {
+                handler.script.callEventBatch(handler.function, handler.handlerName, handler.entryPoint, events);
+            } catch (Exception e) {
+                plugin.getLogger().severe("Error in batched event handler " + handler.handlerName +
+                        " in script " + handler.script.getScriptFile().getName() +
+                        ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Drops the dispatch table entries of every event class that is a subtype of the changed class.
+     */
+    private void invalidate(EventPriority priority, Class<? extends Event> changed) {
+        dispatchTables.get(priority).keySet().removeIf(changed::isAssignableFrom);
+    }
+
+    /**
+     * Gets the handlers for a concrete event class, building the dispatch table entry if needed.
+     */
+    private ScriptHandler[] getHandlers(EventPriority priority, Class<? extends Event> eventClass) {
+        ScriptHandler[] handlers = dispatchTables.get(priority).get(eventClass);
+        return handlers != null ? handlers : resolve(priority, eventClass);
+    }
+
+    private synchronized ScriptHandler[] resolve(EventPriority priority, Class<? extends Event> eventClass) {
+        Map<Class<? extends Event>, ScriptHandler[]> dispatchTable = dispatchTables.get(priority);
+        ScriptHandler[] handlers = dispatchTable.get(eventClass);
+        if (handlers != null) {
+            return handlers;
+        }
+
+        List<ScriptHandler> matched = new ArrayList<>();
+        for (Map.Entry<Class<? extends Event>, ScriptHandler[]> entry : registered.entrySet()) {
+            if (entry.getKey().isAssignableFrom(eventClass)) {
+                for (ScriptHandler handler : entry.getValue()) {
+                    if (handler.priority == priority) {
+                        matched.add(handler);
+                    }
+                }
+            }
+        }
+
+        // Keep registration order across the merged supertypes
+        matched.sort(Comparator.comparingLong(h -> h.sequence));
+        handlers = matched.isEmpty() ? NO_HANDLERS : matched.toArray(new ScriptHandler[0]);
+        dispatchTable.put(eventClass, handlers);
+        return handlers;
+    }
+
+    /**
+     * Finds every handler list an event class and its subclasses can be fired on: the list the
+     * class itself uses, if any, and the lists declared by its known subclasses.
+     */
+    @SuppressWarnings("unchecked")
+    private Class<? extends Event>[] getListClasses(Class<? extends Event> eventClass) {
+        Class<? extends Event>[] cached = listClasses.get(eventClass);
+        if (cached != null) {
+            return cached;
+        }
+
+        Set<Class<? extends Event>> known = getKnownListClasses();
+        Set<Class<? extends Event>> lists = new LinkedHashSet<>();
+        Class<? extends Event> own = getRegistrationClass(eventClass);
+        if (own != null) {
+            lists.add(own);
+            if (known.add(own)) {
+                addKnownList(own);
+            }
+        }
+        for (Class<? extends Event> listClass : known) {
+            if (eventClass.isAssignableFrom(listClass)) {
+                lists.add(listClass);
+            }
+        }
+        if (lists.isEmpty()) {
+            throw new IllegalArgumentException("Event " + eventClass.getName() + " has no handler list and no known " +
+                    "subclass with one; listen to a concrete event class instead");
+        }
+
+        Class<? extends Event>[] result = lists.toArray(new Class[0]);
+        listClasses.put(eventClass, result);
+        return result;
+    }
+
+    /**
+     * Binds the handlers already registered for supertypes of a class whose handler list was
+     * not known when they were registered.
+     */
+    private void addKnownList(Class<? extends Event> listClass) {
+        listClasses.clear();
+        for (ScriptHandler[] handlers : registered.values()) {
+            for (ScriptHandler handler : handlers) {
+                if (handler.eventClass.isAssignableFrom(listClass)) {
+                    HandlerListBinding[] updated = Arrays.copyOf(handler.bindings, handler.bindings.length + 1);
+                    updated[handler.bindings.length] = bind(listClass, handler.priority);
+                    handler.bindings = updated;
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the Bukkit and Paper event classes on the server classpath that declare their own
+     * handler list. The scan runs once, on first registration.
+     */
+    private Set<Class<? extends Event>> getKnownListClasses() {
+        if (knownListClasses != null) {
+            return knownListClasses;
+        }
+        knownListClasses = new LinkedHashSet<>();
+        ClassLoader loader = Event.class.getClassLoader();
+        try {
+            ClassPath classPath = ClassPath.from(loader);
+            for (String eventPackage : EVENT_PACKAGES) {
+                for (ClassPath.ClassInfo info : classPath.getTopLevelClassesRecursive(eventPackage)) {
+                    try {
+                        Class<?> type = Class.forName(info.getName(), false, loader);
+                        if (Event.class.isAssignableFrom(type) && declaresHandlerList(type)) {
+                            knownListClasses.add(type.asSubclass(Event.class));
+                        }
+                    } catch (ClassNotFoundException | LinkageError ignored) {
+                        // Not loadable on this server
+                    }
+                }
+            }
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Unable to scan event classes; supertype handlers only " +
+                    "receive events fired on their own handler list", e);
+        }
+        return knownListClasses;
+    }
+
+    /**
+     * Finds the class that owns the handler list Bukkit uses for the given event class.
+     * @return The class, or null if neither it nor any of its supertypes declares a handler list
+     */
+    static Class<? extends Event> getRegistrationClass(Class<? extends Event> eventClass) {
+        if (declaresHandlerList(eventClass)) {
+            return eventClass;
+        }
+        Class<?> parent = eventClass.getSuperclass();
+        if (parent != null && parent != Event.class && Event.class.isAssignableFrom(parent)) {
+            return getRegistrationClass(parent.asSubclass(Event.class));
+        }
+        return null;
+    }
+
+    private static boolean declaresHandlerList(Class<?> type) {
+        try {
+            type.getDeclaredMethod("getHandlerList");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static HandlerList getHandlerList(Class<? extends Event> listClass) {
+        try {
+            Method method = listClass.getDeclaredMethod("getHandlerList");
+            method.setAccessible(true);
+            return (HandlerList) method.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Unable to get handler list for event " + listClass.getName(), e);
+        }
+    }
+
+    /**
+     * The Bukkit listener and executor for a single handler list and priority.
+     */
+    private class HandlerListBinding implements Listener, EventExecutor {
+        final Class<? extends Event> listClass;
+        final EventPriority priority;
+        final HandlerList handlerList;
+        int handlerCount = 0;
+
+        HandlerListBinding(Class<? extends Event> listClass, EventPriority priority) {
+            this.listClass = listClass;
+            this.priority = priority;
+            this.handlerList = getHandlerList(listClass);
+        }
+
+        EventManager getManager() {
+            return EventManager.this;
+        }
+
+        @Override
+        public void execute(Listener listener, Event event) {
+            for (ScriptHandler handler : getHandlers(priority, event.getClass())) {
                 try {
                     handler.handle(event);
                 } catch (Exception e) {
-                    plugin.getLogger().severe("Error in event handler " + handler.handlerName + 
-                            " for " + event.getEventName() + 
-                            " in script " + handler.script.getScriptFile().getName() + 
+                    plugin.getLogger().severe("Error in event handler " + handler.handlerName +
+                            " for " + event.getEventName() +
+                            " in script " + handler.script.getScriptFile().getName() +
                             ": " + e.getMessage());
                 }
             }
         }
     }
-    
-    private static class ScriptHandler {
+
+    /**
+     * A script function registered for an event class. Also serves as the registration
+     * token: {@link #unregister()} removes just this handler.
+     */
+    public static class ScriptHandler {
+        final Class<? extends Event> eventClass;
         final ScriptInstance script;
         final String handlerName;
-        
-        ScriptHandler(ScriptInstance script, String handlerName) {
+        final String entryPoint;
+        final Value function;
+        final EventPriority priority;
+        final boolean ignoreCancelled;
+        final EventFilter filter;
+        final EventBatch batch;
+        final boolean async;
+        final long sequence;
+        HandlerListBinding[] bindings;
+
+        ScriptHandler(Class<? extends Event> eventClass, ScriptInstance script, String handlerName, Value function,
+                      HandlerOptions options, long sequence) {
+            this.eventClass = eventClass;
             this.script = script;
             this.handlerName = handlerName;
+            this.function = function;
+            this.priority = options.getPriority();
+            this.ignoreCancelled = options.isIgnoreCancelled();
+            this.filter = options.getFilter();
+            this.batch = options.isBatched() ? new EventBatch(options.getBatchCapacity(), options.getCoalesceKey()) : null;
+            this.async = options.isAsync();
+            this.sequence = sequence;
+            // Built once so dispatch does not concatenate a profiler label per event
+            this.entryPoint = (batch != null ? "batch-event:" : async ? "async-event:" : "event:") + handlerName;
         }
-        
+
         void handle(Event event) {
-            script.callEvent(handlerName, event);
+            // Filter in Java so skipped events never enter the script context
+            if (ignoreCancelled && event instanceof Cancellable && ((Cancellable) event).isCancelled()) {
+                return;
+            }
+            if (filter != null && !filter.test(event)) {
+                return;
+            }
+            if (batch != null) {
+                batch.add(event);
+                return;
+            }
+            if (async) {
+                script.callEventAsync(function, handlerName, entryPoint, EventSnapshot.capture(event));
+                return;
+            }
+            script.callEvent(function, handlerName, entryPoint, event);
         }
-        
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-            ScriptHandler that = (ScriptHandler) o;
-            return script.equals(that.script) && handlerName.equals(that.handlerName);
+
+        /**
+         * Removes this handler. Calling it more than once has no effect.
+         * <p>
+         * Dispatch reads copy-on-write handler arrays without locking, so removal copies the
+         * array of this handler's event class and costs time linear in the handlers registered
+         * for that class, not constant time.
+         */
+        public void unregister() {
+            bindings[0].getManager().unregister(this);
         }
-        
-        @Override
-        public int hashCode() {
-            return Objects.hash(script, handlerName);
+
+        public Class<? extends Event> getEventClass() {
+            return eventClass;
+        }
+
+        public ScriptInstance getScript() {
+            return script;
+        }
+
+        public EventPriority getPriority() {
+            return priority;
+        }
+
+        public String getHandlerName() {
+            return handlerName;
+        }
+
+        /**
+         * @return The number of events a batched handler lost because its buffer was full
+         */
+        public long getDroppedEvents() {
+            return batch != null ? batch.getDropped() : 0;
         }
     }
 }
@@ -0,0 +1,191 @@
+package com.polycraft.engine.listeners;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Entity;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.inventory.ItemStack;
+import org.graalvm.polyglot.proxy.ProxyObject;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+/**
+ * Captures an immutable, thread-safe copy of an event so it can be handled off the main thread.
+ * <p>
+ * The snapshot holds the values of the event's public no-argument getters at capture time.
+ * Entities, blocks, locations, worlds and item stacks are reduced to plain values
+ * (names, UUIDs, coordinates) so that no live game object escapes the main thread.
+ * Getters returning other types are never called, since some of them are expensive or have
+ * side effects. The getters of each event class are looked up once and cached.
+ */
+public final class EventSnapshot {
+
+    private static final Set<String> SKIPPED_GETTERS = new HashSet<>(Arrays.asList(
+            "getHandlers", "getHandlerList", "getEventName", "isAsynchronous", "isCancelled"
+    ));
+
+    /** Return types {@link #convert} can reduce to plain values, besides primitives and enums. */
+    private static final List<Class<?>> SNAPSHOT_TYPES = Arrays.asList(
+            String.class, Number.class, Boolean.class, Character.class, UUID.class,
+            World.class, Location.class, Entity.class, Block.class, ItemStack.class
+    );
+
+    private static final ClassValue<Accessor[]> ACCESSORS = new ClassValue<Accessor[]>() {
+        @Override
+        protected Accessor[] computeValue(Class<?> type) {
+            return findAccessors(type);
+        }
+    };
+
+    private EventSnapshot() {
+    }
+
+    /**
+     * Captures the event. Must be called on the thread the event is fired on.
+     * @param event The event to capture
+     * @return A read-only object with {@code eventName}, {@code cancelled} and one member per getter
+     */
+    public static ProxyObject capture(Event event) {
+        Map<String, Object> values = new HashMap<>();
+        values.put("eventName", event.getEventName());
+        if (event instanceof Cancellable) {
+            values.put("cancelled", ((Cancellable) event).isCancelled());
+        }
+
+        for (Accessor accessor : ACCESSORS.get(event.getClass())) {
+            try {
+                Object value = convert(accessor.method.invoke(event));
+                if (value != null) {
+                    values.put(accessor.name, value);
+                }
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                // Some getters throw for certain event states; leave them out
+            }
+        }
+        return freeze(values);
+    }
+
+    private static Object convert(Object value) {
+        if (value == null || value instanceof String || value instanceof Number || value instanceof Boolean) {
+            return value;
+        }
+        if (value instanceof Character) {
+            return value.toString();
+        }
+        if (value instanceof Enum) {
+            return ((Enum<?>) value).name();
+        }
+        if (value instanceof UUID) {
+            return value.toString();
+        }
+        if (value instanceof World) {
+            return ((World) value).getName();
+        }
+        if (value instanceof Location) {
+            Location location = (Location) value;
+            Map<String, Object> map = new HashMap<>();
+            map.put("world", location.getWorld() != null ? location.getWorld().getName() : null);
+            map.put("x", location.getX());
+            map.put("y", location.getY());
+            map.put("z", location.getZ());
+            map.put("yaw", location.getYaw());
+            map.put("pitch", location.getPitch());
+            return freeze(map);
+        }
+        if (value instanceof Entity) {
+            Entity entity = (Entity) value;
+            Location location = entity.getLocation();
+            Map<String, Object> map = new HashMap<>();
+            map.put("uuid", entity.getUniqueId().toString());
+            map.put("name", entity.getName());
+            map.put("type", entity.getType().name());
+            map.put("world", entity.getWorld().getName());
+            map.put("x", location.getX());
+            map.put("y", location.getY());
+            map.put("z", location.getZ());
+            return freeze(map);
+        }
+        if (value instanceof Block) {
+            Block block = (Block) value;
+            Map<String, Object> map = new HashMap<>();
+            map.put("type", block.getType().name());
+            map.put("world", block.getWorld().getName());
+            map.put("x", block.getX());
+            map.put("y", block.getY());
+            map.put("z", block.getZ());
+            return freeze(map);
+        }
+        if (value instanceof ItemStack) {
+            ItemStack item = (ItemStack) value;
+            Map<String, Object> map = new HashMap<>();
+            map.put("type", item.getType().name());
+            map.put("amount", item.getAmount());
+            return freeze(map);
+        }
+        return null;
+    }
+
+    private static ProxyObject freeze(Map<String, Object> values) {
+        // putMember on an unmodifiable map is rejected, which keeps the snapshot read-only
+        return ProxyObject.fromMap(Collections.unmodifiableMap(values));
+    }
+
+    private static Accessor[] findAccessors(Class<?> eventClass) {
+        List<Accessor> accessors = new ArrayList<>();
+        for (Method method : eventClass.getMethods()) {
+            if (method.getParameterCount() != 0 || Modifier.isStatic(method.getModifiers()) || method.isBridge()
+                    || method.getDeclaringClass() == Object.class || method.getDeclaringClass() == Event.class
+                    || !isSnapshotType(method.getReturnType()) || SKIPPED_GETTERS.contains(method.getName())) {
+                continue;
+            }
+
+            String name = propertyName(method.getName());
+            if (name != null) {
+                accessors.add(new Accessor(name, method));
+            }
+        }
+        accessors.sort(Comparator.comparing(a -> a.name));
+        return accessors.toArray(new Accessor[0]);
+    }
+
+    private static boolean isSnapshotType(Class<?> type) {
+        if (type.isPrimitive()) {
+            return type != void.class;
+        }
+        if (type.isEnum()) {
+            return true;
+        }
+        for (Class<?> supported : SNAPSHOT_TYPES) {
+            if (supported.isAssignableFrom(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String propertyName(String methodName) {
+        String property;
+        if (methodName.startsWith("get") && methodName.length() > 3) {
+            property = methodName.substring(3);
+        } else if (methodName.startsWith("is") && methodName.length() > 2) {
+            property = methodName.substring(2);
+        } else {
+            return null;
+        }
+        return Character.toLowerCase(property.charAt(0)) + property.substring(1);
+    }
+
+    private static final class Accessor {
+        final String name;
+        final Method method;
+
+        Accessor(String name, Method method) {
+            this.name = name;
+            this.method = method;
+        }
+    }
+}
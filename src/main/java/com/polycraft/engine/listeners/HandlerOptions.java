@@ -0,0 +1,142 @@
+package com.polycraft.engine.listeners;
+
+import org.bukkit.event.EventPriority;
+
+import java.util.Objects;
+
+/**
+ * Options for a script event handler registration.
+ */
+public class HandlerOptions {
+
+    public static final HandlerOptions DEFAULT = new Builder().build();
+
+    private final EventPriority priority;
+    private final boolean ignoreCancelled;
+    private final EventFilter filter;
+    private final boolean batched;
+    private final int batchCapacity;
+    private final String coalesceKey;
+    private final boolean async;
+
+    private HandlerOptions(Builder builder) {
+        this.priority = builder.priority;
+        this.ignoreCancelled = builder.ignoreCancelled;
+        this.filter = builder.filter;
+        this.batched = builder.batched;
+        this.batchCapacity = builder.batchCapacity;
+        this.coalesceKey = builder.coalesceKey;
+        this.async = builder.async;
+    }
+
+    public EventPriority getPriority() {
+        return priority;
+    }
+
+    public boolean isIgnoreCancelled() {
+        return ignoreCancelled;
+    }
+
+    /**
+     * @return The pre-filter, or null if every event is passed on
+     */
+    public EventFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Batched handlers receive the buffered event objects on the next tick, after the events
+     * have finished firing. The events are read-only by then: cancelling or changing them has
+     * no effect, and the game objects they refer to may have changed since.
+     * @return true if events are buffered and delivered to the handler once per tick
+     */
+    public boolean isBatched() {
+        return batched;
+    }
+
+    public int getBatchCapacity() {
+        return batchCapacity;
+    }
+
+    /**
+     * @return The key used to keep only the latest event per subject in a batch, or null
+     */
+    public String getCoalesceKey() {
+        return coalesceKey;
+    }
+
+    /**
+     * Async handlers keep script work off the main thread, but not out of the script's context:
+     * while one runs, the script's main-thread handlers wait for it or are skipped.
+     * @return true if the handler receives an {@link EventSnapshot} on the script's async lane
+     */
+    public boolean isAsync() {
+        return async;
+    }
+
+    /**
+     * Builder for creating handler options.
+     */
+    public static class Builder {
+        private EventPriority priority = EventPriority.NORMAL;
+        private boolean ignoreCancelled = false;
+        private EventFilter filter;
+        private boolean batched = false;
+        private int batchCapacity = 1024;
+        private String coalesceKey;
+        private boolean async = false;
+
+        public Builder priority(EventPriority priority) {
+            this.priority = Objects.requireNonNull(priority, "priority cannot be null");
+            return this;
+        }
+
+        public Builder ignoreCancelled(boolean ignoreCancelled) {
+            this.ignoreCancelled = ignoreCancelled;
+            return this;
+        }
+
+        public Builder filter(EventFilter filter) {
+            this.filter = filter;
+            return this;
+        }
+
+        /**
+         * Buffers events and delivers them once per tick. See {@link HandlerOptions#isBatched()}
+         * for why batched handlers cannot cancel or modify events.
+         */
+        public Builder batched(boolean batched) {
+            this.batched = batched;
+            return this;
+        }
+
+        public Builder batchCapacity(int batchCapacity) {
+            if (batchCapacity <= 0) {
+                throw new IllegalArgumentException("batchCapacity must be positive");
+            }
+            this.batchCapacity = batchCapacity;
+            return this;
+        }
+
+        public Builder coalesceKey(String coalesceKey) {
+            this.coalesceKey = coalesceKey;
+            return this;
+        }
+
+        public Builder async(boolean async) {
+            this.async = async;
+            return this;
+        }
+
+        public HandlerOptions build() {
+            if (async && batched) {
+                throw new IllegalArgumentException("A handler cannot be both async and batched");
+            }
+            if (coalesceKey != null) {
+                // Fail early on unknown keys rather than on the first event
+                EventBatch.keyExtractor(coalesceKey);
+            }
+            return new HandlerOptions(this);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.polycraft.engine.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Invocation count, wall time, CPU time and a wall-time latency histogram for one entry point.
+ */
+public class ExecutionStats {
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder wallNanos = new LongAdder();
+    private final LongAdder cpuNanos = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    /**
+     * @param wallNanos The elapsed time of the invocation
+     * @param cpuNanos The CPU time of the invoking thread, or a negative value if unavailable
+     */
+    public void record(long wallNanos, long cpuNanos) {
+        count.increment();
+        this.wallNanos.add(wallNanos);
+        if (cpuNanos > 0) {
+            this.cpuNanos.add(cpuNanos);
+        }
+        latency.record(wallNanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getWallNanos() {
+        return wallNanos.sum();
+    }
+
+    public long getCpuNanos() {
+        return cpuNanos.sum();
+    }
+
+    public long getMeanNanos() {
+        long invocations = getCount();
+        return invocations == 0 ? 0 : getWallNanos() / invocations;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+}
@@ -0,0 +1,46 @@
+package com.polycraft.engine.metrics;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Collects execution statistics for one script, in total and per entry point.
+ * <p>
+ * An entry point is a named way into the script, such as {@code event:PlayerJoinEvent},
+ * {@code task:runSync} or {@code onEnable}.
+ */
+public class ScriptProfiler {
+
+    private final ExecutionStats total = new ExecutionStats();
+    private final Map<String, ExecutionStats> entryPoints = new ConcurrentHashMap<>();
+
+    /**
+     * Records a finished invocation.
+     * @param entryPoint The entry point name
+     * @param wallNanos The elapsed time
+     * @param cpuNanos The CPU time, or a negative value if unavailable
+     */
+    public void record(String entryPoint, long wallNanos, long cpuNanos) {
+        total.record(wallNanos, cpuNanos);
+        entryPoints.computeIfAbsent(entryPoint, k -> new ExecutionStats()).record(wallNanos, cpuNanos);
+    }
+
+    public ExecutionStats getTotal() {
+        return total;
+    }
+
+    /**
+     * Gets the entry points that used the most wall time.
+     * @param limit The maximum number of entries to return
+     * @return Entry point names and statistics, most expensive first
+     */
+    public List<Map.Entry<String, ExecutionStats>> getTopEntryPoints(int limit) {
+        return entryPoints.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, ExecutionStats> e) -> e.getValue().getWallNanos()).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+}
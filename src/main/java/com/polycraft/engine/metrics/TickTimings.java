@@ -0,0 +1,253 @@
+package com.polycraft.engine.metrics;
+
+import com.destroystokyo.paper.event.server.ServerTickEndEvent;
+import org.bukkit.Bukkit;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+
+import java.util.*;
+
+/**
+ * Attributes main-thread time to scripts and their entry points, tick by tick.
+ * <p>
+ * Samples are summed into a ring buffer of per-tick slots indexed by the server's tick number,
+ * each holding one counter per (script, entry point) pair, so recording is an array add with
+ * no allocation once a pair has been seen. Only the main thread writes and reads the buffer;
+ * work done on other threads does not cost tick time and is not recorded.
+ */
+public class TickTimings implements Listener {
+
+    /** Number of ticks kept, 30 seconds at 20 TPS. */
+    public static final int WINDOW_TICKS = 600;
+
+    private final int[] slotTicks = new int[WINDOW_TICKS];
+    private final double[] tickMillis = new double[WINDOW_TICKS];
+    private final long[][] slotNanos = new long[WINDOW_TICKS][];
+    private final Map<String, Map<String, Integer>> keyIds = new HashMap<>();
+    private final List<String[]> keys = new ArrayList<>();
+
+    public TickTimings() {
+        Arrays.fill(slotTicks, -1);
+        for (int i = 0; i < WINDOW_TICKS; i++) {
+            slotNanos[i] = new long[16];
+        }
+    }
+
+    /**
+     * Adds time spent in a script to the current tick. Calls from other threads are ignored.
+     * @param script The script name
+     * @param entryPoint The entry point name, such as {@code event:PlayerMoveEvent}
+     * @param nanos The time spent
+     */
+    public void record(String script, String entryPoint, long nanos) {
+        if (!Bukkit.isPrimaryThread()) {
+            return;
+        }
+
+        int slot = slotFor(Bukkit.getCurrentTick());
+        int id = keyId(script, entryPoint);
+        long[] row = slotNanos[slot];
+        if (id >= row.length) {
+            row = slotNanos[slot] = Arrays.copyOf(row, Math.max(row.length * 2, id + 1));
+        }
+        row[id] += nanos;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onTickEnd(ServerTickEndEvent event) {
+        tickMillis[slotFor(event.getTickNumber())] = event.getTickDuration();
+    }
+
+    /**
+     * Builds a report over the ticks currently in the window.
+     * @param topN The number of entries to include in each ranking
+     * @return The report
+     */
+    public Report report(int topN) {
+        int currentTick = Bukkit.getCurrentTick();
+        List<Integer> slots = new ArrayList<>();
+        double totalTickMillis = 0;
+        for (int slot = 0; slot < WINDOW_TICKS; slot++) {
+            int tick = slotTicks[slot];
+            if (tick >= 0 && tick <= currentTick && currentTick - tick < WINDOW_TICKS) {
+                slots.add(slot);
+                totalTickMillis += Math.max(0, tickMillis[slot]);
+            }
+        }
+
+        Map<String, long[]> byScript = new HashMap<>();
+        Map<String, long[]> byEntryPoint = new HashMap<>();
+        for (int id = 0; id < keys.size(); id++) {
+            String[] key = keys.get(id);
+            long[] perTick = new long[slots.size()];
+            for (int i = 0; i < slots.size(); i++) {
+                long[] row = slotNanos[slots.get(i)];
+                perTick[i] = id < row.length ? row[id] : 0;
+            }
+            merge(byScript, key[0], perTick);
+            // Entry points of different scripts often share a name, so rank each script's own
+            merge(byEntryPoint, key[0] + " " + key[1], perTick);
+        }
+
+        long windowNanos = (long) (totalTickMillis * 1_000_000L);
+        return new Report(slots.size(), totalTickMillis,
+                rank(byScript, windowNanos, topN), rank(byEntryPoint, windowNanos, topN));
+    }
+
+    /**
+     * Drops all collected samples.
+     */
+    public void reset() {
+        Arrays.fill(slotTicks, -1);
+        Arrays.fill(tickMillis, 0);
+        for (long[] row : slotNanos) {
+            Arrays.fill(row, 0);
+        }
+    }
+
+    private int slotFor(int tick) {
+        int slot = Math.floorMod(tick, WINDOW_TICKS);
+        if (slotTicks[slot] != tick) {
+            // The slot still holds an old tick; recycle it
+            slotTicks[slot] = tick;
+            tickMillis[slot] = 0;
+            Arrays.fill(slotNanos[slot], 0);
+        }
+        return slot;
+    }
+
+    private int keyId(String script, String entryPoint) {
+        Map<String, Integer> scriptKeys = keyIds.computeIfAbsent(script, k -> new HashMap<>());
+        Integer id = scriptKeys.get(entryPoint);
+        if (id == null) {
+            id = keys.size();
+            keys.add(new String[]{script, entryPoint});
+            scriptKeys.put(entryPoint, id);
+        }
+        return id;
+    }
+
+    private static void merge(Map<String, long[]> groups, String name, long[] perTick) {
+        long[] sums = groups.computeIfAbsent(name, k -> new long[perTick.length]);
+        for (int i = 0; i < perTick.length; i++) {
+            sums[i] += perTick[i];
+        }
+    }
+
+    private static List<Entry> rank(Map<String, long[]> groups, long windowNanos, int topN) {
+        List<Entry> entries = new ArrayList<>();
+        for (Map.Entry<String, long[]> group : groups.entrySet()) {
+            long[] perTick = group.getValue().clone();
+            long total = 0;
+            for (long nanos : perTick) {
+                total += nanos;
+            }
+            if (total == 0) {
+                continue;
+            }
+            Arrays.sort(perTick);
+            entries.add(new Entry(group.getKey(), total,
+                    windowNanos > 0 ? (double) total / windowNanos : 0,
+                    percentile(perTick, 50), percentile(perTick, 99), perTick[perTick.length - 1]));
+        }
+        entries.sort(Comparator.comparingLong(Entry::getTotalNanos).reversed());
+        return entries.size() > topN ? new ArrayList<>(entries.subList(0, topN)) : entries;
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(sorted.length * percentile / 100.0) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    /**
+     * A snapshot of the timings window.
+     */
+    public static final class Report {
+        private final int ticks;
+        private final double tickMillis;
+        private final List<Entry> scripts;
+        private final List<Entry> entryPoints;
+
+        Report(int ticks, double tickMillis, List<Entry> scripts, List<Entry> entryPoints) {
+            this.ticks = ticks;
+            this.tickMillis = tickMillis;
+            this.scripts = scripts;
+            this.entryPoints = entryPoints;
+        }
+
+        public int getTicks() {
+            return ticks;
+        }
+
+        /**
+         * @return The summed duration of the ticks in the window
+         */
+        public double getTickMillis() {
+            return tickMillis;
+        }
+
+        public List<Entry> getScripts() {
+            return scripts;
+        }
+
+        /**
+         * @return Event handlers and scheduled tasks across all scripts, one entry per script and
+         *         entry point, named like {@code welcome.js event:onJoin}
+         */
+        public List<Entry> getEntryPoints() {
+            return entryPoints;
+        }
+    }
+
+    /**
+     * Time attributed to one script or entry point over the window.
+     */
+    public static final class Entry {
+        private final String name;
+        private final long totalNanos;
+        private final double share;
+        private final long p50Nanos;
+        private final long p99Nanos;
+        private final long maxNanos;
+
+        Entry(String name, long totalNanos, double share, long p50Nanos, long p99Nanos, long maxNanos) {
+            this.name = name;
+            this.totalNanos = totalNanos;
+            this.share = share;
+            this.p50Nanos = p50Nanos;
+            this.p99Nanos = p99Nanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        /**
+         * @return The fraction of total tick time, between 0 and 1
+         */
+        public double getShare() {
+            return share;
+        }
+
+        /**
+         * @return The median time per tick
+         */
+        public long getP50Nanos() {
+            return p50Nanos;
+        }
+
+        public long getP99Nanos() {
+            return p99Nanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package com.polycraft.engine.scheduler;
+
+import com.polycraft.engine.scripting.ScriptInstance;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs off-main-thread script work for all scripts on one shared set of threads.
+ * <p>
+ * On Java 21 and later the work runs on virtual threads; on older runtimes it runs on a small
+ * platform pool sized to the CPU count whose threads time out when idle. Each script gets a
+ * serial lane: its async tasks, async event handlers and submitted calls run one at a time in
+ * the order they were queued, on whichever thread is free. A script context can only be entered
+ * by one thread at a time, so the lane never has two threads competing for the same context,
+ * while different scripts still run in parallel.
+ * <p>
+ * Since a lane already limits each script to one running task, the per-script limit applies to
+ * the queue instead: a lane holds at most {@code performance.async-queue-per-script} waiting
+ * tasks, and work queued beyond that is refused and counted, so one script cannot flood the
+ * executor.
+ */
+public class AsyncTaskExecutor {
+
+    /** Tasks a lane runs back to back before giving its thread up to other scripts. */
+    private static final int LANE_BATCH = 16;
+    private static final long REJECT_WARNING_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final Logger logger;
+    private final ExecutorService threads;
+    private final boolean virtualThreads;
+    private final int maxQueuedPerScript;
+    private final Map<ScriptInstance, Lane> lanes = new ConcurrentHashMap<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger peakQueued = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong lastRejectWarning = new AtomicLong(System.nanoTime() - REJECT_WARNING_INTERVAL_NANOS);
+
+    /**
+     * @param logger The logger for task errors
+     * @param useVirtualThreads Whether to use virtual threads when the runtime supports them
+     * @param maxQueuedPerScript The most tasks a script may have waiting at once
+     */
+    public AsyncTaskExecutor(Logger logger, boolean useVirtualThreads, int maxQueuedPerScript) {
+        this.logger = logger;
+        this.maxQueuedPerScript = Math.max(1, maxQueuedPerScript);
+        ExecutorService virtual = useVirtualThreads ? newVirtualThreadExecutor() : null;
+        this.virtualThreads = virtual != null;
+        this.threads = virtual != null ? virtual : newPlatformExecutor();
+    }
+
+    /**
+     * Queues a task on a script's lane unless the lane is already full.
+     * @param script The script that owns the task
+     * @param task The task to run
+     * @return false if the lane was full or the executor has been shut down
+     */
+    public boolean execute(ScriptInstance script, Runnable task) {
+        if (threads.isShutdown()) {
+            return false;
+        }
+        if (lanes.computeIfAbsent(script, k -> new Lane()).submit(task, maxQueuedPerScript)) {
+            return true;
+        }
+        rejected.incrementAndGet();
+        long now = System.nanoTime();
+        long last = lastRejectWarning.get();
+        if (now - last >= REJECT_WARNING_INTERVAL_NANOS && lastRejectWarning.compareAndSet(last, now)) {
+            logger.warning("Async queue of script " + script.getScriptFile().getName() + " is full (" +
+                    maxQueuedPerScript + " tasks); new async work is dropped. Raise performance.async-queue-per-script " +
+                    "or queue less work.");
+        }
+        return false;
+    }
+
+    /**
+     * Queues a call on a script's lane.
+     * @param script The script that owns the call
+     * @param call The call to run
+     * @return A future completed with the call's result, or cancelled if the script is removed first
+     */
+    public <T> CompletableFuture<T> submit(ScriptInstance script, Callable<T> call) {
+        Submission<T> submission = new Submission<>(call);
+        if (!execute(script, submission)) {
+            submission.future.completeExceptionally(new RejectedExecutionException(threads.isShutdown()
+                    ? "Async executor is shut down"
+                    : "Async queue of script " + script.getScriptFile().getName() + " is full"));
+        }
+        return submission.future;
+    }
+
+    /**
+     * Runs a call that does not enter any script context, such as file I/O, on the shared
+     * threads without going through a lane.
+     * @param call The call to run
+     * @return A future completed with the call's result
+     */
+    public <T> CompletableFuture<T> supply(Callable<T> call) {
+        Submission<T> submission = new Submission<>(call);
+        try {
+            threads.execute(submission);
+        } catch (RejectedExecutionException e) {
+            submission.future.completeExceptionally(e);
+        }
+        return submission.future;
+    }
+
+    /**
+     * Drops the queued tasks of a script and cancels its pending calls. A task already running
+     * finishes normally.
+     * @param script The script
+     */
+    public void remove(ScriptInstance script) {
+        Lane lane = lanes.remove(script);
+        if (lane != null) {
+            lane.clear();
+        }
+    }
+
+    /**
+     * @param script The script
+     * @return The number of the script's tasks waiting to run
+     */
+    public int getQueued(ScriptInstance script) {
+        Lane lane = lanes.get(script);
+        return lane != null ? lane.size.get() : 0;
+    }
+
+    /**
+     * @param script The script
+     * @return true if one of the script's tasks is running now
+     */
+    public boolean isRunning(ScriptInstance script) {
+        Lane lane = lanes.get(script);
+        return lane != null && lane.running.get();
+    }
+
+    /**
+     * @return The number of tasks waiting to run across all scripts
+     */
+    public int getQueued() {
+        return queued.get();
+    }
+
+    /**
+     * @return The most tasks that have been waiting at once
+     */
+    public int getPeakQueued() {
+        return peakQueued.get();
+    }
+
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    /**
+     * @return The number of tasks refused because their script's lane was full
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public int getMaxQueuedPerScript() {
+        return maxQueuedPerScript;
+    }
+
+    public boolean isUsingVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Drops all queued tasks and waits briefly for running ones.
+     */
+    public void shutdown() {
+        for (Lane lane : lanes.values()) {
+            lane.clear();
+        }
+        lanes.clear();
+        threads.shutdown();
+        try {
+            if (!threads.awaitTermination(5, TimeUnit.SECONDS)) {
+                threads.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            threads.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Creates a virtual thread per task executor through reflection, since the plugin is
+     * compiled for Java 17.
+     * @return The executor, or null if the runtime has no virtual threads
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newPlatformExecutor() {
+        int size = Math.max(2, Runtime.getRuntime().availableProcessors());
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(size, size, 60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), r -> {
+                Thread t = new Thread(r, "PolyCraft-Async-" + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * The queued tasks of one script. At most one thread works on a lane at a time.
+     */
+    private final class Lane {
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicBoolean running = new AtomicBoolean();
+
+        boolean submit(Runnable task, int maxQueued) {
+            if (size.incrementAndGet() > maxQueued) {
+                size.decrementAndGet();
+                return false;
+            }
+            tasks.add(task);
+            peakQueued.accumulateAndGet(queued.incrementAndGet(), Math::max);
+            schedule();
+            return true;
+        }
+
+        /**
+         * Starts a worker if there is queued work and none is running. The worker re-checks
+         * after it stops, so a task queued while it was finishing is never stranded.
+         */
+        void schedule() {
+            if (!tasks.isEmpty() && running.compareAndSet(false, true)) {
+                try {
+                    threads.execute(this::work);
+                } catch (RejectedExecutionException e) {
+                    running.set(false);
+                    clear();
+                }
+            }
+        }
+
+        void work() {
+            try {
+                Runnable task;
+                for (int i = 0; i < LANE_BATCH && (task = tasks.poll()) != null; i++) {
+                    size.decrementAndGet();
+                    queued.decrementAndGet();
+                    try {
+                        task.run();
+                    } catch (Throwable t) {
+                        logger.log(Level.SEVERE, "Error running async script task", t);
+                    }
+                    completed.incrementAndGet();
+                }
+            } finally {
+                running.set(false);
+                schedule();
+            }
+        }
+
+        void clear() {
+            for (Runnable task; (task = tasks.poll()) != null; ) {
+                size.decrementAndGet();
+                queued.decrementAndGet();
+                if (task instanceof Submission) {
+                    ((Submission<?>) task).future.cancel(false);
+                }
+            }
+        }
+    }
+
+    /**
+     * A queued call whose result is handed back through a future.
+     */
+    private static final class Submission<T> implements Runnable {
+        private final Callable<T> call;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        Submission(Callable<T> call) {
+            this.call = call;
+        }
+
+        @Override
+        public void run() {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                future.complete(call.call());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }
+    }
+}
@@ -1,27 +1,59 @@
 package com.polycraft.engine.scheduler;
 
 import com.polycraft.engine.PolyCraftEngine;
+import com.polycraft.engine.config.ScriptConfig;
 import com.polycraft.engine.scripting.ScriptInstance;
-import org.bukkit.Bukkit;
-import org.bukkit.scheduler.BukkitTask;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
-import java.util.function.Consumer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
 
 /**
  * Manages scheduled tasks for scripts.
+ * <p>
+ * Tasks are tracked in concurrent maps by ID and by owning script, so scripts may schedule and
+ * cancel from any thread and all tasks of a script are found without a scan when it is unloaded.
+ * One-shot tasks remove themselves once they have run. IDs come from a counter under a random
+ * per-scheduler prefix rather than {@link UUID#randomUUID()}, which would draw from the shared
+ * secure random on every call.
+ * <p>
+ * Main-thread tasks run on a {@link TickScheduler}, which spreads them over ticks within the
+ * {@code performance.tick-budget-ms} budget instead of running every due task back to back.
+ * Async tasks are timed on the same tick scheduler as hand-offs, which run outside that budget,
+ * and then handed to the engine-wide {@link AsyncTaskExecutor}, so scripts share its threads
+ * instead of each owning a pool.
  */
 public class ScriptScheduler {
-    
+
     private final PolyCraftEngine plugin;
-    private final Map<UUID, BukkitTask> tasks = new HashMap<>();
-    
+    private final TickScheduler tickScheduler;
+    private final AsyncTaskExecutor asyncExecutor;
+    private final Map<UUID, ScheduledTask> tasks = new ConcurrentHashMap<>();
+    private final Map<ScriptInstance, Set<ScheduledTask>> tasksByScript = new ConcurrentHashMap<>();
+    private final long idPrefix = ThreadLocalRandom.current().nextLong();
+    private final AtomicLong idSequence = new AtomicLong();
+
     public ScriptScheduler(PolyCraftEngine plugin) {
         this.plugin = plugin;
+        ScriptConfig config = plugin.getScriptConfig();
+        this.tickScheduler = new TickScheduler(plugin, config.getTickBudgetMillis());
+
+        // ThreadMXBean reports no CPU time or allocation for virtual threads, which would blind
+        // the profiler and the watchdog's memory budget
+        boolean virtualThreads = config.isAsyncVirtualThreads();
+        if (virtualThreads && (config.isMetricsEnabled() || config.getMaxMemory() > 0)) {
+            plugin.getLogger().info("Running async script tasks on platform threads, since metrics or " +
+                    "security.max-memory need per-thread CPU and allocation counters.");
+            virtualThreads = false;
+        }
+        this.asyncExecutor = new AsyncTaskExecutor(plugin.getLogger(), virtualThreads, config.getAsyncQueuePerScript());
     }
-    
+
     /**
      * Schedule a task to run asynchronously.
      * @param script The script that owns this task
@@ -31,7 +63,7 @@ public class ScriptScheduler {
     public UUID runAsync(ScriptInstance script, Runnable task) {
         return runAsync(script, task, 0);
     }
-    
+
     /**
      * Schedule a delayed task to run asynchronously.
      * @param script The script that owns this task
@@ -40,9 +72,15 @@ public class ScriptScheduler {
      * @return The task ID
      */
     public UUID runAsync(ScriptInstance script, Runnable task, long delayTicks) {
-        return scheduleTask(script, () -> Bukkit.getScheduler().runTaskAsynchronously(plugin, task), delayTicks);
+        return scheduleTask(script, task, false, (entry, body) -> {
+            if (delayTicks <= 0) {
+                queueAsync(entry, body);
+                return () -> { };
+            }
+            return tickScheduler.scheduleHandOff(() -> queueAsync(entry, body), delayTicks, 0)::cancel;
+        });
     }
-    
+
     /**
      * Schedule a repeating task to run asynchronously.
      * @param script The script that owns this task
@@ -52,12 +90,24 @@ public class ScriptScheduler {
      * @return The task ID
      */
     public UUID runAsyncTimer(ScriptInstance script, Runnable task, long delayTicks, long periodTicks) {
-        return scheduleTask(script, 
-            () -> Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, task, delayTicks, periodTicks),
-            0
-        );
+        // A run that has not finished by the next period is not queued a second time
+        AtomicBoolean pending = new AtomicBoolean();
+        return scheduleTask(script, task, true, (entry, body) -> tickScheduler.scheduleHandOff(() -> {
+            if (pending.compareAndSet(false, true)) {
+                Runnable run = () -> {
+                    try {
+                        body.run();
+                    } finally {
+                        pending.set(false);
+                    }
+                };
+                if (!asyncExecutor.execute(script, run)) {
+                    pending.set(false);
+                }
+            }
+        }, delayTicks, Math.max(1, periodTicks))::cancel);
     }
-    
+
     /**
      * Schedule a task to run on the main server thread.
      * @param script The script that owns this task
@@ -67,7 +117,7 @@ public class ScriptScheduler {
     public UUID runSync(ScriptInstance script, Runnable task) {
         return runSync(script, task, 0);
     }
-    
+
     /**
      * Schedule a delayed task to run on the main server thread.
      * @param script The script that owns this task
@@ -76,9 +126,10 @@ public class ScriptScheduler {
      * @return The task ID
      */
     public UUID runSync(ScriptInstance script, Runnable task, long delayTicks) {
-        return scheduleTask(script, () -> Bukkit.getScheduler().runTaskLater(plugin, task, delayTicks), 0);
+        return scheduleTask(script, task, false,
+            (entry, body) -> tickScheduler.schedule(body, delayTicks, 0)::cancel);
     }
-    
+
     /**
      * Schedule a repeating task to run on the main server thread.
      * @param script The script that owns this task
@@ -88,71 +139,161 @@ public class ScriptScheduler {
      * @return The task ID
      */
     public UUID runSyncTimer(ScriptInstance script, Runnable task, long delayTicks, long periodTicks) {
-        return scheduleTask(script, 
-            () -> Bukkit.getScheduler().runTaskTimer(plugin, task, delayTicks, periodTicks),
-            0
-        );
+        return scheduleTask(script, task, true,
+            (entry, body) -> tickScheduler.schedule(body, delayTicks, Math.max(1, periodTicks))::cancel);
     }
-    
+
     /**
      * Cancel a scheduled task.
      * @param taskId The task ID to cancel
      */
     public void cancelTask(UUID taskId) {
         if (taskId != null) {
-            BukkitTask task = tasks.remove(taskId);
+            ScheduledTask task = tasks.get(taskId);
             if (task != null) {
+                remove(task);
                 task.cancel();
             }
         }
     }
-    
+
     /**
      * Cancel all tasks for a specific script.
      * @param script The script whose tasks should be cancelled
      */
     public void cancelTasks(ScriptInstance script) {
         if (script != null) {
-            // Create a copy to avoid ConcurrentModificationException
-            tasks.entrySet().stream()
-                .filter(entry -> entry.getValue().getOwner().equals(script))
-                .map(Map.Entry::getKey)
-                .forEach(this::cancelTask);
+            Set<ScheduledTask> owned = tasksByScript.remove(script);
+            if (owned != null) {
+                for (ScheduledTask task : owned) {
+                    tasks.remove(task.id, task);
+                    task.cancel();
+                }
+            }
+            asyncExecutor.remove(script);
         }
     }
-    
+
     /**
-     * Cancel all scheduled tasks.
+     * Cancel all scheduled tasks and stop the schedulers. Called when the plugin is disabled.
      */
     public void cancelAllTasks() {
-        tasks.values().forEach(BukkitTask::cancel);
+        for (ScriptInstance script : tasksByScript.keySet()) {
+            cancelTasks(script);
+        }
+        tasks.values().forEach(ScheduledTask::cancel);
         tasks.clear();
+        tickScheduler.shutdown();
+        asyncExecutor.shutdown();
+    }
+
+    /**
+     * Gets the scheduler that runs main-thread script tasks.
+     * @return The tick scheduler
+     */
+    public TickScheduler getTickScheduler() {
+        return tickScheduler;
+    }
+
+    /**
+     * Gets the executor that runs async script tasks.
+     * @return The async executor
+     */
+    public AsyncTaskExecutor getAsyncExecutor() {
+        return asyncExecutor;
+    }
+
+    /**
+     * @param script The script
+     * @return The number of tasks the script has scheduled that have not finished or been cancelled
+     */
+    public int getTaskCount(ScriptInstance script) {
+        Set<ScheduledTask> owned = tasksByScript.get(script);
+        return owned != null ? owned.size() : 0;
     }
-    
-    private UUID scheduleTask(ScriptInstance script, TaskScheduler scheduler, long delayTicks) {
-        UUID taskId = UUID.randomUUID();
-        
-        Runnable wrappedTask = () -> {
+
+    private UUID scheduleTask(ScriptInstance script, Runnable task, boolean repeating, TaskScheduler scheduler) {
+        ScheduledTask entry = new ScheduledTask(new UUID(idPrefix, idSequence.incrementAndGet()), script);
+        tasks.put(entry.id, entry);
+        tasksByScript.computeIfAbsent(script, k -> ConcurrentHashMap.newKeySet()).add(entry);
+
+        // Async runs may already be queued on the executor when the task is cancelled
+        Runnable body = repeating ? () -> {
+            if (!entry.cancelled) {
+                task.run();
+            }
+        } : () -> {
             try {
-                BukkitTask task = scheduler.schedule();
-                tasks.put(taskId, task);
-            } catch (Exception e) {
-                plugin.getLogger().severe("Error scheduling task for script: " + script.getScriptFile().getName());
-                e.printStackTrace();
+                if (!entry.cancelled) {
+                    task.run();
+                }
+            } finally {
+                remove(entry);
             }
         };
-        
-        if (delayTicks <= 0) {
-            wrappedTask.run();
-        } else {
-            Bukkit.getScheduler().runTaskLater(plugin, wrappedTask, delayTicks);
+
+        try {
+            entry.setCanceller(scheduler.schedule(entry, body));
+        } catch (Exception e) {
+            remove(entry);
+            plugin.getLogger().log(Level.SEVERE, "Error scheduling task for script: " + script.getScriptFile().getName(), e);
+        }
+        return entry.id;
+    }
+
+    /**
+     * Queues a one-shot async run, forgetting the task if its script's lane is full.
+     */
+    private void queueAsync(ScheduledTask entry, Runnable body) {
+        if (!asyncExecutor.execute(entry.script, body)) {
+            remove(entry);
+        }
+    }
+
+    private void remove(ScheduledTask task) {
+        tasks.remove(task.id, task);
+        Set<ScheduledTask> owned = tasksByScript.get(task.script);
+        if (owned != null) {
+            owned.remove(task);
         }
-        
-        return taskId;
     }
-    
+
     @FunctionalInterface
     private interface TaskScheduler {
-        BukkitTask schedule();
+        /**
+         * @return An action that cancels the scheduled task
+         */
+        Runnable schedule(ScheduledTask entry, Runnable body);
+    }
+
+    /**
+     * A script task and the means to cancel it.
+     */
+    private static final class ScheduledTask {
+        private final UUID id;
+        private final ScriptInstance script;
+        private volatile Runnable canceller;
+        private volatile boolean cancelled;
+
+        ScheduledTask(UUID id, ScriptInstance script) {
+            this.id = id;
+            this.script = script;
+        }
+
+        void setCanceller(Runnable canceller) {
+            this.canceller = canceller;
+            // A cancel that raced with scheduling saw nothing to cancel yet
+            if (cancelled) {
+                canceller.run();
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+            Runnable current = canceller;
+            if (current != null) {
+                current.run();
+            }
+        }
     }
 }
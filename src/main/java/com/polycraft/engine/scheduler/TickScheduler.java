@@ -0,0 +1,255 @@
+package com.polycraft.engine.scheduler;
+
+import com.polycraft.engine.PolyCraftEngine;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Runs main-thread script tasks from a single Bukkit task, within a time budget per tick.
+ * <p>
+ * Due tasks are taken from a priority queue ordered by the tick they were due, so work deferred
+ * by an exhausted budget runs first on the next tick and nothing starves behind newer tasks.
+ * At least one task runs every tick. Repeating tasks are rescheduled relative to when they
+ * actually ran, so timers that fell behind spread out instead of catching up in a burst.
+ * Tasks may be scheduled and cancelled from any thread; they are handed to the main thread
+ * through a concurrent queue.
+ * <p>
+ * Hand-offs, which only pass work on to another thread such as the start of a delayed async
+ * task, are kept in a queue of their own. They all run at the start of each tick, are not
+ * held back by the budget and do not use it up.
+ */
+public class TickScheduler {
+
+    /** Tasks that wait at least this long past their due tick are reported. */
+    private static final int STARVATION_TICKS = 20;
+    private static final long REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final PolyCraftEngine plugin;
+    private final long budgetNanos;
+    private final Queue<TickTask> incoming = new ConcurrentLinkedQueue<>();
+    private final PriorityQueue<TickTask> queue = new PriorityQueue<>();
+    private final PriorityQueue<TickTask> handOffs = new PriorityQueue<>();
+    private volatile BukkitTask driver;
+    private volatile long currentTick;
+    private long sequence;
+    private long lastReport;
+
+    private volatile int deferredLastTick;
+    private volatile long deferredTotal;
+    private volatile long maxWaitTicks;
+
+    /**
+     * @param plugin The plugin that owns the driving Bukkit task
+     * @param budgetMillis The time per tick to spend on script tasks, or 0 for no limit
+     */
+    public TickScheduler(PolyCraftEngine plugin, long budgetMillis) {
+        this.plugin = plugin;
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, budgetMillis));
+        this.lastReport = System.nanoTime() - REPORT_INTERVAL_NANOS;
+    }
+
+    /**
+     * Schedules a task.
+     * @param task The task to run on the main thread
+     * @param delayTicks The number of ticks before it runs, at least one
+     * @param periodTicks The period for a repeating task, or 0 to run once
+     * @return The scheduled task
+     */
+    public TickTask schedule(Runnable task, long delayTicks, long periodTicks) {
+        return schedule(task, delayTicks, periodTicks, true);
+    }
+
+    /**
+     * Schedules a hand-off that runs outside the tick budget. It must only pass work on to
+     * another thread, since its time is not limited.
+     * @param task The task to run on the main thread
+     * @param delayTicks The number of ticks before it runs, at least one
+     * @param periodTicks The period for a repeating task, or 0 to run once
+     * @return The scheduled task
+     */
+    public TickTask scheduleHandOff(Runnable task, long delayTicks, long periodTicks) {
+        return schedule(task, delayTicks, periodTicks, false);
+    }
+
+    private TickTask schedule(Runnable task, long delayTicks, long periodTicks, boolean budgeted) {
+        TickTask tickTask = new TickTask(task, currentTick + Math.max(1, delayTicks), Math.max(0, periodTicks), budgeted);
+        incoming.add(tickTask);
+        if (driver == null) {
+            ensureStarted();
+        }
+        return tickTask;
+    }
+
+    /**
+     * @return The number of due tasks left waiting at the end of the last tick
+     */
+    public int getDeferredLastTick() {
+        return deferredLastTick;
+    }
+
+    /**
+     * @return The number of times a due task was pushed to a later tick
+     */
+    public long getDeferredTotal() {
+        return deferredTotal;
+    }
+
+    /**
+     * @return The longest a task has waited past its due tick
+     */
+    public long getMaxWaitTicks() {
+        return maxWaitTicks;
+    }
+
+    public long getBudgetMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(budgetNanos);
+    }
+
+    /**
+     * Stops the driving task and drops all pending tasks.
+     */
+    public synchronized void shutdown() {
+        if (driver != null) {
+            driver.cancel();
+            driver = null;
+        }
+        incoming.clear();
+        queue.clear();
+        handOffs.clear();
+    }
+
+    private synchronized void ensureStarted() {
+        if (driver == null && plugin.isEnabled()) {
+            driver = plugin.getServer().getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+        }
+    }
+
+    /**
+     * Runs due tasks until the budget is spent. Main thread only.
+     */
+    private void tick() {
+        long now = ++currentTick;
+        for (TickTask task; (task = incoming.poll()) != null; ) {
+            task.sequence = sequence++;
+            (task.budgeted ? queue : handOffs).add(task);
+        }
+
+        TickTask handOff;
+        while ((handOff = handOffs.peek()) != null && handOff.dueTick <= now) {
+            handOffs.poll();
+            if (!handOff.cancelled) {
+                run(handOff, now);
+                if (handOff.periodTicks > 0 && !handOff.cancelled) {
+                    handOffs.add(handOff);
+                }
+            }
+        }
+
+        long start = System.nanoTime();
+        boolean ranAny = false;
+        TickTask next;
+        while ((next = queue.peek()) != null && next.dueTick <= now) {
+            if (ranAny && budgetNanos > 0 && System.nanoTime() - start >= budgetNanos) {
+                break;
+            }
+            queue.poll();
+            if (next.cancelled) {
+                continue;
+            }
+
+            long waited = now - next.dueTick;
+            if (waited > maxWaitTicks) {
+                maxWaitTicks = waited;
+            }
+            run(next, now);
+            ranAny = true;
+
+            if (next.periodTicks > 0 && !next.cancelled) {
+                queue.add(next);
+            }
+        }
+
+        if (next == null || next.dueTick > now) {
+            deferredLastTick = 0;
+            return;
+        }
+
+        // The budget ran out with tasks still due; the head of the queue has waited longest
+        int deferred = 0;
+        for (TickTask task : queue) {
+            if (task.dueTick <= now && !task.cancelled) {
+                deferred++;
+            }
+        }
+        deferredLastTick = deferred;
+        deferredTotal += deferred;
+        reportStarvation(deferred, now - next.dueTick);
+    }
+
+    /**
+     * Runs a task and moves a repeating task's due tick past the current one. The caller puts
+     * it back in its queue.
+     */
+    private void run(TickTask task, long now) {
+        try {
+            task.task.run();
+        } catch (Throwable t) {
+            plugin.getLogger().log(Level.SEVERE, "Error running scheduled script task", t);
+        }
+        if (task.periodTicks > 0) {
+            task.dueTick = now + task.periodTicks;
+            task.sequence = sequence++;
+        }
+    }
+
+    private void reportStarvation(int deferred, long oldestWait) {
+        long time = System.nanoTime();
+        if (oldestWait >= STARVATION_TICKS && time - lastReport >= REPORT_INTERVAL_NANOS) {
+            lastReport = time;
+            plugin.getLogger().warning("Script tasks are falling behind: " + deferred + " due tasks deferred, " +
+                    "the oldest by " + oldestWait + " ticks. Raise performance.tick-budget-ms (" +
+                    getBudgetMillis() + " ms) or reduce scheduled script work.");
+        }
+    }
+
+    /**
+     * A task queued on the tick scheduler.
+     */
+    public static final class TickTask implements Comparable<TickTask> {
+        private final Runnable task;
+        private final long periodTicks;
+        private final boolean budgeted;
+        private long dueTick;
+        private long sequence;
+        private volatile boolean cancelled;
+
+        TickTask(Runnable task, long dueTick, long periodTicks, boolean budgeted) {
+            this.task = task;
+            this.dueTick = dueTick;
+            this.periodTicks = periodTicks;
+            this.budgeted = budgeted;
+        }
+
+        /**
+         * Stops the task. A repeating task already running finishes its current run.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public int compareTo(TickTask other) {
+            int byTick = Long.compare(dueTick, other.dueTick);
+            return byTick != 0 ? byTick : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.polycraft.engine.scripting;
+
+import com.polycraft.engine.PolyCraftEngine;
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Engine;
+import org.graalvm.polyglot.HostAccess;
+import org.graalvm.polyglot.Value;
+import org.graalvm.polyglot.proxy.ProxyObject;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * Keeps pre-warmed script contexts on the shared engine, grouped by language and options.
+ * <p>
+ * Pooled contexts already have the CommonJS options applied and an empty {@code poly} object
+ * tree installed in their bindings, so a script only has to attach its own API functions.
+ * A used context cannot be reset to a clean global state, so released contexts are closed
+ * and replaced in the background instead of being handed out again.
+ */
+public class ContextPool implements AutoCloseable {
+
+    private static final String[] POLY_MODULES = {"scheduler", "config", "data", "files", "player", "shared"};
+
+    private final PolyCraftEngine plugin;
+    private final Engine engine;
+    private final int poolSize;
+    private final Map<PoolKey, BlockingQueue<PooledContext>> idle = new ConcurrentHashMap<>();
+    private final Map<PoolKey, AtomicInteger> pendingRefills = new ConcurrentHashMap<>();
+    private final ExecutorService worker;
+    private volatile boolean closed = false;
+
+    public ContextPool(PolyCraftEngine plugin, Engine engine, int poolSize) {
+        this.plugin = plugin;
+        this.engine = engine;
+        this.poolSize = Math.max(0, poolSize);
+        this.worker = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "PolyCraft-ContextPool");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Fills the pool for a language and working directory ahead of the first script load.
+     * @param languageId The GraalVM language ID
+     * @param workingDir The CommonJS working directory, or null
+     */
+    public void prewarm(String languageId, File workingDir) {
+        scheduleRefill(new PoolKey(languageId, workingDir));
+    }
+
+    /**
+     * Takes a ready-to-use context for the given language and working directory.
+     * Falls back to building one on the calling thread if none is idle.
+     * @param languageId The GraalVM language ID
+     * @param workingDir The CommonJS working directory, or null
+     * @return A context with the {@code poly} object installed
+     */
+    public PooledContext acquire(String languageId, File workingDir) {
+        if (engine == null) {
+            throw new IllegalStateException("Cannot create script context: The shared GraalVM Engine is not available.");
+        }
+
+        PoolKey key = new PoolKey(languageId, workingDir);
+        PooledContext pooled = null;
+        BlockingQueue<PooledContext> queue = idle.get(key);
+        if (queue != null) {
+            pooled = queue.poll();
+        }
+
+        if (pooled == null) {
+            plugin.getLogger().fine("No pre-warmed context for " + key + ", creating one on demand.");
+            pooled = build(key);
+        }
+
+        scheduleRefill(key);
+        return pooled;
+    }
+
+    /**
+     * Returns a context that is no longer needed. It is closed in the background,
+     * cancelling any execution still running in it.
+     * @param context The context to release
+     */
+    public void release(Context context) {
+        if (context == null) {
+            return;
+        }
+        if (closed) {
+            closeQuietly(context);
+            return;
+        }
+        worker.execute(() -> closeQuietly(context));
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        worker.shutdown();
+        try {
+            if (!worker.awaitTermination(5, TimeUnit.SECONDS)) {
+                worker.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            worker.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        for (BlockingQueue<PooledContext> queue : idle.values()) {
+            PooledContext pooled;
+            while ((pooled = queue.poll()) != null) {
+                closeQuietly(pooled.getContext());
+            }
+        }
+        idle.clear();
+    }
+
+    public int getIdleCount() {
+        return idle.values().stream().mapToInt(BlockingQueue::size).sum();
+    }
+
+    private void scheduleRefill(PoolKey key) {
+        if (closed || poolSize == 0) {
+            return;
+        }
+
+        BlockingQueue<PooledContext> queue = idle.computeIfAbsent(key, k -> new LinkedBlockingQueue<>());
+        AtomicInteger pending = pendingRefills.computeIfAbsent(key, k -> new AtomicInteger());
+        while (queue.size() + pending.get() < poolSize) {
+            pending.incrementAndGet();
+            worker.execute(() -> {
+                try {
+                    if (!closed) {
+                        queue.offer(build(key));
+                    }
+                } catch (Exception e) {
+                    plugin.getLogger().log(Level.WARNING, "Failed to pre-warm script context for " + key, e);
+                } finally {
+                    pending.decrementAndGet();
+                }
+            });
+        }
+    }
+
+    private PooledContext build(PoolKey key) {
+        Context.Builder builder = Context.newBuilder()
+                .engine(engine) // Используем общий движок
+                .allowAllAccess(true) // Оставляем для совместимости, но в будущем ограничим
+                .allowHostAccess(HostAccess.ALL)
+                .allowHostClassLookup(className -> true) // Тоже нужно будет ограничить
+                .allowCreateThread(true);
+
+        if (plugin.getResourceLimits() != null) {
+            builder.resourceLimits(plugin.getResourceLimits());
+        }
+        
+        // Add script directory to module path for CommonJS modules
+        if (key.workingDir != null) {
+            builder.option("js.commonjs-require", "true")
+                   .option("js.commonjs-require-cwd", key.workingDir);
+        }
+
+        Context context = builder.build();
+        try {
+            Value polyObject = newObject(context, key.languageId);
+            for (String module : POLY_MODULES) {
+                polyObject.putMember(module, newObject(context, key.languageId));
+            }
+            context.getBindings(key.languageId).putMember("poly", polyObject);
+            return new PooledContext(context, polyObject);
+        } catch (RuntimeException e) {
+            closeQuietly(context);
+            throw e;
+        }
+    }
+
+    private static Value newObject(Context context, String languageId) {
+        if ("js".equals(languageId)) {
+            return context.eval(languageId, "({})");
+        }
+        return context.asValue(ProxyObject.fromMap(new ConcurrentHashMap<>()));
+    }
+
+    private void closeQuietly(Context context) {
+        try {
+            context.close(true); // Interrupt any running executions
+        } catch (Exception e) {
+            plugin.getLogger().log(Level.WARNING, "Error closing script context", e);
+        }
+    }
+
+    /**
+     * A context taken from the pool together with its pre-installed {@code poly} object.
+     */
+    public static final class PooledContext {
+        private final Context context;
+        private final Value polyObject;
+
+        PooledContext(Context context, Value polyObject) {
+            this.context = context;
+            this.polyObject = polyObject;
+        }
+
+        public Context getContext() {
+            return context;
+        }
+
+        public Value getPolyObject() {
+            return polyObject;
+        }
+    }
+
+    private static final class PoolKey {
+        final String languageId;
+        final String workingDir;
+
+        PoolKey(String languageId, File workingDir) {
+            this.languageId = languageId;
+            this.workingDir = workingDir != null ? workingDir.getAbsolutePath() : null;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            PoolKey that = (PoolKey) o;
+            return languageId.equals(that.languageId) && Objects.equals(workingDir, that.workingDir);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(languageId, workingDir);
+        }
+
+        @Override
+        public String toString() {
+            return workingDir != null ? languageId + " (" + workingDir + ")" : languageId;
+        }
+    }
+}
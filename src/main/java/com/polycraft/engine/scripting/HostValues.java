@@ -0,0 +1,91 @@
+package com.polycraft.engine.scripting;
+
+import org.graalvm.polyglot.Value;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts script values into plain Java values that stay valid outside the script context.
+ * <p>
+ * {@code Value.as(Object.class)} returns maps and lists that are still backed by the guest
+ * object and must only be used on a thread that may enter its context. Values that are kept
+ * after the call returns, or handed to other threads or scripts, are deep-copied here instead.
+ * Copies that are shared between scripts are made read-only, so one script cannot change a
+ * value another script is reading.
+ */
+public final class HostValues {
+
+    private HostValues() {
+    }
+
+    /**
+     * Deep-copies a script value.
+     * @param value The value to copy
+     * @return null, a Boolean, Integer, Long, Double, String, host object, List or Map
+     * @throws IllegalArgumentException if the value is a function or otherwise cannot be copied
+     */
+    public static Object toHost(Value value) {
+        return toHost(value, false);
+    }
+
+    /**
+     * Deep-copies a script value into unmodifiable lists and maps, at every level, for values
+     * that are shared with other threads or scripts by reference.
+     * @param value The value to copy
+     * @return null, a Boolean, Integer, Long, Double, String, host object, read-only List or read-only Map
+     * @throws IllegalArgumentException if the value is a function or otherwise cannot be copied
+     */
+    public static Object toReadOnlyHost(Value value) {
+        return toHost(value, true);
+    }
+
+    private static Object toHost(Value value, boolean readOnly) {
+        if (value == null || value.isNull()) {
+            return null;
+        }
+        if (value.isHostObject()) {
+            return value.asHostObject();
+        }
+        if (value.isBoolean()) {
+            return value.asBoolean();
+        }
+        if (value.isString()) {
+            return value.asString();
+        }
+        if (value.isNumber()) {
+            if (value.fitsInInt()) {
+                return value.asInt();
+            }
+            if (value.fitsInLong()) {
+                return value.asLong();
+            }
+            return value.asDouble();
+        }
+        // Proxies such as the poly.* functions or event snapshots are not passed through by
+        // reference: they may be bound to the script that made them, so they are copied or
+        // rejected like guest values below
+        if (value.hasArrayElements()) {
+            long size = value.getArraySize();
+            List<Object> list = new ArrayList<>((int) Math.min(size, Integer.MAX_VALUE));
+            for (long i = 0; i < size; i++) {
+                list.add(toHost(value.getArrayElement(i), readOnly));
+            }
+            return readOnly ? Collections.unmodifiableList(list) : list;
+        }
+        if (value.canExecute()) {
+            throw new IllegalArgumentException("Functions cannot be stored or shared: " + value);
+        }
+        if (value.hasMembers()) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            for (String key : value.getMemberKeys()) {
+                map.put(key, toHost(value.getMember(key), readOnly));
+            }
+            return readOnly ? Collections.unmodifiableMap(map) : map;
+        }
+        return value.toString();
+    }
+}
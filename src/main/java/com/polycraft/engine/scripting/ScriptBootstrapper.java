@@ -0,0 +1,184 @@
+package com.polycraft.engine.scripting;
+
+import com.polycraft.engine.PolyCraftEngine;
+import org.bukkit.Bukkit;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+
+/**
+ * Loads a set of scripts in dependency order, building independent scripts in parallel.
+ * <p>
+ * The dependency graph is split into layers where every script only depends on scripts in
+ * earlier layers. Scripts within a layer are created, parsed and evaluated on a bounded worker
+ * pool; enabling them ({@code onEnable} and Bukkit registration) happens on the main thread
+ * before the next layer starts.
+ * <p>
+ * Top-level script code therefore runs on a worker thread. Event registrations it makes are
+ * queued until the script is enabled, commands and scheduled tasks are only recorded, and the
+ * {@code poly} calls that return live server objects ({@code getServer}, {@code getPlugin} and
+ * {@code player}) fail with an error naming the script. Scripts that reach Bukkit directly
+ * through Java interop must do so from {@code onEnable} or a handler.
+ */
+public class ScriptBootstrapper {
+
+    private final PolyCraftEngine plugin;
+    private final ScriptLoader scriptLoader;
+    private final int parallelism;
+
+    public ScriptBootstrapper(PolyCraftEngine plugin, ScriptLoader scriptLoader, int parallelism) {
+        this.plugin = plugin;
+        this.scriptLoader = scriptLoader;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Loads and enables the given scripts.
+     * @param scriptFiles The script files to load
+     * @param configs The script configs, keyed by script file
+     * @param factory Creates an unloaded script instance for a file
+     * @param onEnabled Called on the main thread for every script that was enabled
+     * @return The number of scripts that were enabled
+     */
+    public int bootstrap(List<File> scriptFiles, Map<File, ScriptLoader.ScriptConfig> configs,
+                         Function<File, ScriptInstance> factory, Consumer<ScriptInstance> onEnabled) {
+        List<List<File>> layers = computeLayers(scriptFiles, configs);
+
+        AtomicInteger threadId = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, scriptFiles.size())), r -> {
+            Thread t = new Thread(r, "PolyCraft-Bootstrap-" + threadId.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        int enabled = 0;
+        try {
+            for (List<File> layer : layers) {
+                // Build contexts and evaluate top-level code for the whole layer in parallel
+                List<CompletableFuture<ScriptInstance>> loading = new ArrayList<>(layer.size());
+                for (File scriptFile : layer) {
+                    loading.add(CompletableFuture.supplyAsync(() -> load(scriptFile, factory), pool));
+                }
+
+                // Enable in a stable order on the main thread before moving on to dependents
+                for (CompletableFuture<ScriptInstance> future : loading) {
+                    ScriptInstance script = future.join();
+                    if (script != null && callOnMainThread(() -> activate(script, onEnabled))) {
+                        enabled++;
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        return enabled;
+    }
+
+    /**
+     * Splits the scripts into dependency layers using Kahn's algorithm.
+     * Scripts that are part of a dependency cycle are placed in a final layer.
+     */
+    List<List<File>> computeLayers(List<File> scriptFiles, Map<File, ScriptLoader.ScriptConfig> configs) {
+        Set<File> known = new HashSet<>(scriptFiles);
+        Map<File, Set<File>> dependencies = new LinkedHashMap<>();
+        Map<File, Set<File>> dependents = new HashMap<>();
+
+        for (File scriptFile : scriptFiles) {
+            Set<File> deps = new LinkedHashSet<>();
+            ScriptLoader.ScriptConfig config = configs.get(scriptFile);
+            if (config != null) {
+                for (String dep : config.getDependencies()) {
+                    File depFile = scriptLoader.findDependency(scriptFile.getParentFile(), dep);
+                    if (depFile != null && known.contains(depFile) && !depFile.equals(scriptFile)) {
+                        deps.add(depFile);
+                        dependents.computeIfAbsent(depFile, k -> new LinkedHashSet<>()).add(scriptFile);
+                    }
+                }
+            }
+            dependencies.put(scriptFile, deps);
+        }
+
+        Map<File, Integer> remaining = new LinkedHashMap<>();
+        List<File> ready = new ArrayList<>();
+        for (Map.Entry<File, Set<File>> entry : dependencies.entrySet()) {
+            remaining.put(entry.getKey(), entry.getValue().size());
+            if (entry.getValue().isEmpty()) {
+                ready.add(entry.getKey());
+            }
+        }
+
+        List<List<File>> layers = new ArrayList<>();
+        while (!ready.isEmpty()) {
+            layers.add(ready);
+            List<File> next = new ArrayList<>();
+            for (File scriptFile : ready) {
+                remaining.remove(scriptFile);
+                for (File dependent : dependents.getOrDefault(scriptFile, Collections.emptySet())) {
+                    Integer left = remaining.computeIfPresent(dependent, (k, count) -> count - 1);
+                    if (left != null && left == 0) {
+                        next.add(dependent);
+                    }
+                }
+            }
+            ready = next;
+        }
+
+        if (!remaining.isEmpty()) {
+            plugin.getLogger().warning("Circular script dependencies detected between: " +
+                    remaining.keySet().stream().map(File::getName).reduce((a, b) -> a + ", " + b).orElse(""));
+            layers.add(new ArrayList<>(remaining.keySet()));
+        }
+
+        return layers;
+    }
+
+    private ScriptInstance load(File scriptFile, Function<File, ScriptInstance> factory) {
+        try {
+            ScriptInstance script = factory.apply(scriptFile);
+            if (script.load()) {
+                return script;
+            }
+        } catch (Exception e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to load script: " + scriptFile.getName(), e);
+        }
+        return null;
+    }
+
+    private boolean activate(ScriptInstance script, Consumer<ScriptInstance> onEnabled) {
+        try {
+            if (script.activate()) {
+                onEnabled.accept(script);
+                return true;
+            }
+        } catch (Exception e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to enable script: " + script.getScriptFile().getName(), e);
+        }
+        return false;
+    }
+
+    /**
+     * Runs a task on the main thread and waits for its result.
+     */
+    <T> T callOnMainThread(Callable<T> task) {
+        try {
+            if (Bukkit.isPrimaryThread()) {
+                return task.call();
+            }
+            return Bukkit.getScheduler().callSyncMethod(plugin, task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the main thread", e);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to run task on the main thread", e);
+        }
+    }
+}
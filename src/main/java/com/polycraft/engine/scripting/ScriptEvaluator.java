@@ -10,7 +10,6 @@ import org.graalvm.polyglot.Value;
 import org.graalvm.polyglot.io.FileSystem;
 import org.graalvm.polyglot.io.IOAccess;
 
-import java.io.StringReader;
 import java.util.List;
 import java.util.Map;
 
@@ -29,8 +28,18 @@ public class ScriptEvaluator {
         }
         
         try (Context context = createContext(langId, sender)) {
-            Source source = Source.newBuilder(langId, new StringReader(code), "<eval>").build();
-            Value result = context.eval(source);
+            // One-off snippets stay out of the source cache so they neither evict script sources
+            // nor keep their parsed code alive on the shared engine
+            Source source = Source.newBuilder(langId, code, "<eval>").cached(false).buildLiteral();
+            Value result;
+            ScriptWatchdog watchdog = plugin.getWatchdog();
+            if (watchdog != null) {
+                try (ScriptWatchdog.Invocation ignored = watchdog.begin(context, "<eval>", reason -> { })) {
+                    result = context.eval(source);
+                }
+            } else {
+                result = context.eval(source);
+            }
             
             if (result != null && !result.isNull()) {
                 if (result.isHostObject()) {
@@ -72,6 +81,10 @@ public class ScriptEvaluator {
                 .allowHostClassLoading(true)
                 .allowExperimentalOptions(true);
             
+            if (plugin.getResourceLimits() != null) {
+                builder.resourceLimits(plugin.getResourceLimits());
+            }
+            
             // 3. Apply language-specific options
             if ("js".equals(language)) {
                 builder.option("js.ecmascript-version", "2022");
@@ -1,6 +1,7 @@
 package com.polycraft.engine.scripting;
 
 import com.polycraft.engine.PolyCraftEngine;
+import com.polycraft.engine.listeners.EventManager;
 import org.bukkit.event.Event;
 import org.bukkit.event.EventException;
 import org.bukkit.event.Listener;
@@ -10,6 +11,7 @@ import org.graalvm.polyglot.Value;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Objects;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 
 /**
@@ -20,6 +22,8 @@ public class ScriptEventHandler implements EventExecutor {
     private final Value handler;
     private final Class<? extends Event> eventClass;
     private final String eventName;
+    private volatile EventManager.ScriptHandler registration;
+    private volatile boolean removed;
 
     public ScriptEventHandler(ScriptInstance script, Class<? extends Event> eventClass, String eventName, Value handler) {
         this.script = script;
@@ -69,6 +73,38 @@ public class ScriptEventHandler implements EventExecutor {
         return eventName;
     }
     
+    /**
+     * Gets the event manager registration for this handler.
+     * @return The registration, or null if the handler is not registered with Bukkit yet
+     */
+    public EventManager.ScriptHandler getRegistration() {
+        return registration;
+    }
+    
+    /**
+     * Registers this handler with the event manager, unless it was removed while its
+     * registration was still queued for activation.
+     * @param registrar Performs the registration
+     */
+    void register(Supplier<EventManager.ScriptHandler> registrar) {
+        if (!removed) {
+            this.registration = registrar.get();
+        }
+    }
+    
+    /**
+     * Removes this handler's registration from the event manager, or cancels it if it has not
+     * been performed yet.
+     */
+    void unregister() {
+        removed = true;
+        EventManager.ScriptHandler current = registration;
+        registration = null;
+        if (current != null) {
+            current.unregister();
+        }
+    }
+    
     /**
      * Gets the name of the handler function.
      * @return The name of the handler function, or null if not available
@@ -4,10 +4,15 @@ import com.polycraft.engine.PolyCraftEngine;
 import com.polycraft.engine.api.PolyAPI;
 import com.polycraft.engine.config.ScriptConfig;
 import com.polycraft.engine.data.ScriptDataManager;
+import com.polycraft.engine.listeners.EventFilter;
 import com.polycraft.engine.listeners.EventManager;
+import com.polycraft.engine.listeners.HandlerOptions;
+import com.polycraft.engine.metrics.ScriptProfiler;
 import com.polycraft.engine.scheduler.ScriptScheduler;
-import org.bukkit.configuration.file.FileConfiguration;
+import com.polycraft.engine.shared.SharedStore;
+import org.bukkit.entity.EntityType;
 import org.bukkit.event.Event;
+import org.bukkit.event.EventPriority;
 import org.graalvm.polyglot.Context;
 import org.graalvm.polyglot.Value;
 import org.graalvm.polyglot.io.FileSystem;
@@ -48,8 +53,10 @@ import org.bukkit.plugin.Plugin;
 import org.bukkit.event.Event;
 import org.graalvm.polyglot.Context;
 import org.graalvm.polyglot.Engine;
+import org.graalvm.polyglot.PolyglotException;
 import org.graalvm.polyglot.HostAccess;
 import org.graalvm.polyglot.Source;
+import org.graalvm.polyglot.SourceSection;
 import org.graalvm.polyglot.Value;
 import org.graalvm.polyglot.proxy.ProxyArray;
 import org.graalvm.polyglot.proxy.ProxyExecutable;
@@ -69,28 +76,33 @@ import java.nio.file.Paths;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -102,6 +114,8 @@ import java.util.stream.Collectors;
 public class ScriptInstance implements AutoCloseable {
     
     // Core components
+    private static final long BUSY_WARNING_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(30);
+    
     private final PolyCraftEngine plugin;
     private final File scriptFile;
     private final ScriptScheduler scheduler;
@@ -122,19 +136,27 @@ public class ScriptInstance implements AutoCloseable {
     private volatile Instant lastEnabledTime;
     private volatile Instant lastDisabledTime;
     private final AtomicInteger errorCount = new AtomicInteger(0);
-    private final AtomicLong totalExecutionTime = new AtomicLong(0);
-    private final AtomicInteger executionCount = new AtomicInteger(0);
     private final EventManager eventManager;
     private final ScriptConfig config;
     private final ScriptDataManager dataManager;
     private final PolyAPI api;
     private final ScriptSecurityManager securityManager;
     private final ThreadLocal<Boolean> isExecuting = ThreadLocal.withInitial(() -> false);
-    private final ExecutorService asyncExecutor;
+    private final ReentrantLock contextLock = new ReentrantLock();
+    private final AtomicLong droppedAsyncEvents = new AtomicLong(0);
+    private final AtomicLong skippedMainThreadCalls = new AtomicLong(0);
+    private final AtomicLong lastBusyWarning = new AtomicLong(System.nanoTime() - BUSY_WARNING_INTERVAL_NANOS);
+    private final long mainThreadLockWaitNanos;
     private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
     private final boolean isThreadCpuTimeEnabled = threadMXBean.isThreadCpuTimeSupported() && threadMXBean.isThreadCpuTimeEnabled();
-    private final Map<Long, Long> threadCpuStartTimes = new ConcurrentHashMap<>();
-    private final Map<String, Object> metrics = new ConcurrentHashMap<>();
+    private final ScriptProfiler profiler = new ScriptProfiler();
+    private final boolean metricsEnabled;
+    private final List<Runnable> pendingRegistrations = new CopyOnWriteArrayList<>();
+    private final Set<Consumer<Throwable>> pendingPromises = ConcurrentHashMap.newKeySet();
+    private final List<Runnable> heldSettlements = new ArrayList<>();
+    private volatile boolean deferRegistrations = false;
+    private volatile long loadTime;
+    private volatile Thread shutdownHook;
     
     /**
      * Gets the language of this script.
@@ -186,13 +208,8 @@ public class ScriptInstance implements AutoCloseable {
         this.eventManager = eventManager;
         this.config = config;
         this.dataManager = dataManager;
-        
-        // Initialize the async executor with the script file name
-        this.asyncExecutor = Executors.newCachedThreadPool(r -> {
-            Thread t = new Thread(r, "Script-Async-" + scriptFile.getName());
-            t.setDaemon(true);
-            return t;
-        });
+        this.metricsEnabled = config.isMetricsEnabled();
+        this.mainThreadLockWaitNanos = TimeUnit.MILLISECONDS.toNanos(config.getMainThreadLockWaitMillis());
         
         // Initialize language
         ScriptLanguage detectedLanguage = ScriptLanguage.fromFileName(scriptFile.getName());
@@ -203,17 +220,11 @@ public class ScriptInstance implements AutoCloseable {
             this.securityManager = new ScriptSecurityManager(plugin);
             this.api = new PolyAPI(plugin);
             
-            // Initialize metrics
-            this.metrics.put("startTime", System.currentTimeMillis());
-            this.metrics.put("executionCount", 0L);
             this.lastModified = scriptFile.lastModified();
             
-            // Initialize context and bindings
-            this.context = createContext();
-            this.bindings = context.getBindings(language.getGraalId());
-            
-            // Register shutdown hook for resource cleanup
-            Runtime.getRuntime().addShutdownHook(new Thread(this::safeClose, "Script-Shutdown-" + scriptFile.getName()));
+            // Register shutdown hook for resource cleanup; safeClose() removes it again
+            this.shutdownHook = new Thread(this::safeClose, "Script-Shutdown-" + scriptFile.getName());
+            Runtime.getRuntime().addShutdownHook(shutdownHook);
             
         } catch (Exception e) {
             plugin.getLogger().log(Level.SEVERE, "Failed to initialize script: " + scriptFile.getName(), e);
@@ -298,6 +309,19 @@ public class ScriptInstance implements AutoCloseable {
      * @throws IllegalStateException if the script is already initialized or failed to initialize
      */
     public boolean initialize() {
+        return load() && activate();
+    }
+    
+    /**
+     * Builds the context, installs the API and evaluates the script's top-level code.
+     * <p>
+     * This phase does not touch Bukkit state and may run on any thread. Event registrations
+     * made by top-level code are queued until {@link #activate()} runs on the main thread.
+     * 
+     * @return true if the script was loaded, false if it is in a state that cannot be loaded
+     * @throws IllegalStateException if the script failed to load
+     */
+    public boolean load() {
         if (!isInitializing.compareAndSet(false, true)) {
             plugin.getLogger().warning("Script initialization already in progress: " + scriptFile.getName());
             return enabled;
@@ -312,92 +336,115 @@ public class ScriptInstance implements AutoCloseable {
             }
             
             state.set(ScriptState.INITIALIZING);
+            deferRegistrations = true;
             
-            // Create context and bindings
-            this.context = createContext();
+            // Take a pre-warmed context that already has the poly object installed
+            ContextPool.PooledContext pooled = acquireContext();
+            this.context = pooled.getContext();
             this.bindings = context.getBindings(language.getGraalId());
+            this.polyObject = pooled.getPolyObject();
             
             // Set up the API
             setupPolyAPI();
             
-            // Load and execute the script
-            String scriptContent = new String(Files.readAllBytes(scriptFile.toPath()), StandardCharsets.UTF_8);
-            context.eval(Source.newBuilder(language.getGraalId(), scriptContent, scriptFile.getName()).build());
+            // Load and execute the script, reusing the parsed source if the content is unchanged
+            Source source = plugin.getSourceCache().getSource(language.getGraalId(), language.getMimeType(), scriptFile);
+            callInContext("load", () -> context.eval(source));
+            
+            loadTime = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+            return true;
+        
+        } catch (Exception e) {
+            throw initializationFailed(e);
+            
+        } finally {
+            isInitializing.set(false);
+        }
+    }
+    
+    /**
+     * Applies queued event registrations and calls {@code onEnable}. Must run on the main thread.
+     * 
+     * @return true if the script was enabled, false if it was not loaded
+     * @throws IllegalStateException if the script failed to enable
+     */
+    public boolean activate() {
+        if (state.get() != ScriptState.INITIALIZING || context == null) {
+            plugin.getLogger().warning("Cannot enable script that has not been loaded: " + scriptFile.getName());
+            return false;
+        }
+        
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        try {
+            // Apply the Bukkit registrations made by top-level code
+            deferRegistrations = false;
+            List<Runnable> registrations = new ArrayList<>(pendingRegistrations);
+            pendingRegistrations.clear();
+            registrations.forEach(Runnable::run);
             
             // Call onEnable if it exists
             if (polyObject != null && polyObject.hasMember("onEnable")) {
-                polyObject.invokeMember("onEnable");
+                runInContext("onEnable", () -> polyObject.invokeMember("onEnable"));
             }
             
-            state.set(ScriptState.ENABLED);
-            enabled = true;
+            List<Runnable> settlements;
+            synchronized (heldSettlements) {
+                state.set(ScriptState.ENABLED);
+                enabled = true;
+                settlements = new ArrayList<>(heldSettlements);
+                heldSettlements.clear();
+            }
             lastEnabledTime = Instant.now();
             
+            // Settle the promises of top-level code that completed while the script was loading
+            settlements.forEach(Runnable::run);
+            
             // Log success
-            long duration = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+            long duration = loadTime + stopwatch.elapsed(TimeUnit.MILLISECONDS);
             plugin.getLogger().info(String.format("Enabled script %s in %dms", scriptFile.getName(), duration));
             
             return true;
-        
-        } catch (Exception e) {
-            String errorMsg = "Failed to initialize script: " + scriptFile.getName();
-            plugin.getLogger().log(Level.SEVERE, errorMsg, e);
-            
-            // Update error state
-            errorCount.incrementAndGet();
-            state.set(ScriptState.ERROR);
-            
-            // Try to clean up partially initialized resources
-            safeClose();
-            
-            throw new IllegalStateException(errorMsg, e);
             
-        } finally {
-            isInitializing.set(false);
+        } catch (Exception e) {
+            throw initializationFailed(e);
         }
     }
     
+    private IllegalStateException initializationFailed(Exception e) {
+        String errorMsg = "Failed to initialize script: " + scriptFile.getName();
+        plugin.getLogger().log(Level.SEVERE, errorMsg, e);
+        
+        // Update error state
+        errorCount.incrementAndGet();
+        state.set(ScriptState.ERROR);
+        deferRegistrations = false;
+        pendingRegistrations.clear();
+        
+        // Try to clean up partially initialized resources
+        safeClose();
+        
+        return new IllegalStateException(errorMsg, e);
+    }
+    
     /**
-     * Creates a secure GraalVM context using the shared engine.
+     * Takes a secure GraalVM context on the shared engine from the plugin's context pool.
      */
-    private Context createContext() {
-        Engine sharedEngine = plugin.getGraalEngine();
-        if (sharedEngine == null) {
+    private ContextPool.PooledContext acquireContext() {
+        ContextPool contextPool = plugin.getContextPool();
+        if (contextPool == null) {
             throw new IllegalStateException("Cannot create script context: The shared GraalVM Engine is not available.");
         }
-
-        getLogger().info("Creating new context for script '" + scriptFile.getName() + "' using shared engine.");
-
-        // Configure host access policies
-        Context.Builder builder = Context.newBuilder()
-                .engine(sharedEngine) // Используем общий движок
-                .allowAllAccess(true) // Оставляем для совместимости, но в будущем ограничим
-                .allowHostAccess(HostAccess.ALL)
-                .allowHostClassLookup(className -> true) // Тоже нужно будет ограничить
-                .allowCreateThread(true);
-
-        // Add script directory to module path for ES modules
-        if (scriptFile.getParentFile() != null) {
-            builder.option("js.commonjs-require", "true")
-                   .option("js.commonjs-require-cwd", scriptFile.getParentFile().getAbsolutePath());
-        }
-        
-        return builder.build();
+        return contextPool.acquire(language.getGraalId(), scriptFile.getParentFile());
     }
     
     private void loadAndExecuteScript() throws IOException {
         // Read script content with proper error handling
-        String scriptContent;
+        Source source;
         try {
-            scriptContent = new String(Files.readAllBytes(scriptFile.toPath()), StandardCharsets.UTF_8);
+            source = plugin.getSourceCache().getSource(language.getGraalId(), language.getMimeType(), scriptFile);
         } catch (IOException e) {
             throw new IOException("Failed to read script file: " + e.getMessage(), e);
         }
-        
-        // Create source with proper MIME type
-        Source source = Source.newBuilder(language.getGraalId(), scriptContent, scriptFile.getName())
-            .mimeType(language.getMimeType())
-            .build();
             
         try {
             // Execute the script
@@ -429,44 +476,81 @@ public class ScriptInstance implements AutoCloseable {
         
         // Add event registration
         polyObject.putMember("on", (ProxyExecutable) this::registerEvent);
+        polyObject.putMember("off", (ProxyExecutable) this::unregisterEvent);
         
         // Add command registration
         polyObject.putMember("registerCommand", (ProxyExecutable) this::registerCommand);
         
         // Add scheduler utilities
-        Value schedulerObj = context.eval(language.getGraalId(), "({})");
+        Value schedulerObj = polyObject.getMember("scheduler");
         schedulerObj.putMember("runAsync", (ProxyExecutable) this::scheduleAsyncTask);
         schedulerObj.putMember("runSync", (ProxyExecutable) this::scheduleSyncTask);
         schedulerObj.putMember("runTimer", (ProxyExecutable) this::scheduleTimerTask);
         schedulerObj.putMember("cancel", (ProxyExecutable) this::cancelScheduledTask);
-        polyObject.putMember("scheduler", schedulerObj);
         
         // Add configuration
-        Value configObj = context.eval(language.getGraalId(), "({})");
+        Value configObj = polyObject.getMember("config");
         configObj.putMember("get", (ProxyExecutable) this::getConfigValue);
         configObj.putMember("set", (ProxyExecutable) this::setConfigValue);
         configObj.putMember("save", (ProxyExecutable) this::saveConfig);
-        polyObject.putMember("config", configObj);
         
         // Add data storage
-        Value dataObj = context.eval(language.getGraalId(), "({})");
+        Value dataObj = polyObject.getMember("data");
         dataObj.putMember("get", (ProxyExecutable) this::getDataValue);
         dataObj.putMember("set", (ProxyExecutable) this::setDataValue);
         dataObj.putMember("save", (ProxyExecutable) this::saveData);
-        polyObject.putMember("data", dataObj);
+        dataObj.putMember("getAsync", (ProxyExecutable) this::getDataValueAsync);
+        dataObj.putMember("saveAsync", (ProxyExecutable) this::saveDataAsync);
+        dataObj.putMember("counter", (ProxyExecutable) this::getDataCounter);
+        dataObj.putMember("longMap", (ProxyExecutable) this::getDataLongMap);
+        
+        // Add file access in the script's own folder, if its security policy allows it
+        Value filesObj = polyObject.getMember("files");
+        filesObj.putMember("readAsync", (ProxyExecutable) this::readFileAsync);
+        filesObj.putMember("writeAsync", (ProxyExecutable) this::writeFileAsync);
+        
+        // Add promise-returning background execution
+        polyObject.putMember("async", (ProxyExecutable) this::runAsyncFunction);
+        
+        // Add state shared with other scripts; stored and published values are read-only copies
+        Value sharedObj = polyObject.getMember("shared");
+        sharedObj.putMember("map", (ProxyExecutable) this::getSharedMap);
+        sharedObj.putMember("queue", (ProxyExecutable) this::getSharedQueue);
+        sharedObj.putMember("publish", (ProxyExecutable) this::publishMessage);
+        sharedObj.putMember("subscribe", (ProxyExecutable) this::subscribeToTopic);
         
         // Add utility functions
-        polyObject.putMember("getServer", (ProxyExecutable) args -> plugin.getServer());
-        polyObject.putMember("getPlugin", (ProxyExecutable) args -> plugin);
+        polyObject.putMember("getServer", (ProxyExecutable) args -> {
+            requireServerThread("poly.getServer");
+            return plugin.getServer();
+        });
+        polyObject.putMember("getPlugin", (ProxyExecutable) args -> {
+            requireServerThread("poly.getPlugin");
+            return plugin;
+        });
         
         // Add player utilities
-        Value playerUtils = context.eval(language.getGraalId(), "({})");
+        Value playerUtils = polyObject.getMember("player");
         playerUtils.putMember("get", (ProxyExecutable) this::getPlayer);
         playerUtils.putMember("getOnline", (ProxyExecutable) this::getOnlinePlayers);
-        polyObject.putMember("player", playerUtils);
+    }
+    
+    /**
+     * Fails calls that hand out live server objects while top-level code runs on a bootstrap
+     * thread. Those objects may only be used on the main thread, and unlike event registrations
+     * the calls cannot be queued for {@link #activate()} because the script needs the result.
+     * @param api The API name shown in the error
+     * @throws IllegalStateException if the script is loading off the main thread
+     */
+    private void requireServerThread(String api) {
+        if (deferRegistrations && !plugin.getServer().isPrimaryThread()) {
+            throw new IllegalStateException(api + " cannot be used by top-level code of " + scriptFile.getName() +
+                    ", which is loaded off the main thread. Call it from onEnable or a handler instead.");
+        }
     }
     
     private Object getPlayer(Value... args) {
+        requireServerThread("poly.player.get");
         if (args.length > 0) {
             String playerName = args[0].asString();
             return plugin.getServer().getPlayer(playerName);
@@ -475,13 +559,15 @@ public class ScriptInstance implements AutoCloseable {
     }
     
     private Object getOnlinePlayers(Value... args) {
+        requireServerThread("poly.player.getOnline");
         return new ArrayList<>(plugin.getServer().getOnlinePlayers());
     }
     
     // Scheduler methods
     private Object scheduleAsyncTask(Value... args) {
         if (args.length >= 1 && args[0].canExecute()) {
-            Runnable task = () -> args[0].executeVoid();
+            String entryPoint = taskEntryPoint("runAsync", args[0]);
+            Runnable task = () -> runTask(entryPoint, args[0]);
             long delay = args.length > 1 ? args[1].asLong() : 0;
             return scheduler.runAsync(this, task, delay);
         }
@@ -490,7 +576,8 @@ public class ScriptInstance implements AutoCloseable {
     
     private Object scheduleSyncTask(Value... args) {
         if (args.length >= 1 && args[0].canExecute()) {
-            Runnable task = () -> args[0].executeVoid();
+            String entryPoint = taskEntryPoint("runSync", args[0]);
+            Runnable task = () -> runTask(entryPoint, args[0]);
             long delay = args.length > 1 ? args[1].asLong() : 0;
             return scheduler.runSync(this, task, delay);
         }
@@ -499,7 +586,8 @@ public class ScriptInstance implements AutoCloseable {
     
     private Object scheduleTimerTask(Value... args) {
         if (args.length >= 3 && args[0].canExecute()) {
-            Runnable task = () -> args[0].executeVoid();
+            String entryPoint = taskEntryPoint("runTimer", args[0]);
+            Runnable task = () -> runTask(entryPoint, args[0]);
             long delay = args[1].asLong();
             long period = args[2].asLong();
             boolean async = args.length > 3 && args[3].asBoolean();
@@ -513,10 +601,45 @@ public class ScriptInstance implements AutoCloseable {
         return null;
     }
     
+    private void runTask(String entryPoint, Value function) {
+        try {
+            runInContext(entryPoint, () -> function.executeVoid());
+        } catch (ContextBusyException e) {
+            // Already counted and reported; the next run of a timer tries again
+        }
+    }
+    
+    /**
+     * Builds the profiler entry point of a scheduled task, such as {@code task:runTimer:tick}, so
+     * different tasks of a script are timed separately. Anonymous functions are named after the
+     * line they start on.
+     */
+    private static String taskEntryPoint(String kind, Value function) {
+        String name = null;
+        try {
+            if (function.hasMember("name")) {
+                Value nameValue = function.getMember("name");
+                if (nameValue != null && nameValue.isString()) {
+                    name = nameValue.asString();
+                }
+            }
+            if (name == null || name.isEmpty()) {
+                SourceSection source = function.getSourceLocation();
+                name = source != null ? "anonymous:" + source.getStartLine() : "anonymous";
+            }
+        } catch (PolyglotException e) {
+            name = "anonymous";
+        }
+        return "task:" + kind + ":" + name;
+    }
+    
     private Object cancelScheduledTask(Value... args) {
         if (args.length >= 1) {
             try {
-                UUID taskId = UUID.fromString(args[0].asString());
+                // Task IDs are handed to scripts as UUID objects, but may come back as strings
+                UUID taskId = args[0].isHostObject() && args[0].asHostObject() instanceof UUID
+                        ? args[0].asHostObject()
+                        : UUID.fromString(args[0].asString());
                 scheduler.cancelTask(taskId);
                 return true;
             } catch (IllegalArgumentException e) {
@@ -557,22 +680,16 @@ public class ScriptInstance implements AutoCloseable {
     private Object getDataValue(Value... args) {
         if (args.length >= 1) {
             String key = args[0].asString();
-            FileConfiguration data = dataManager.getScriptData(this);
-            if (args.length > 1) {
-                return data.get(key, args[1].as(Object.class));
-            }
-            return data.get(key);
+            Object def = args.length > 1 ? args[1].as(Object.class) : null;
+            return dataManager.get(this, key, def);
         }
         return null;
     }
     
     private Object setDataValue(Value... args) {
         if (args.length >= 2) {
-            String key = args[0].asString();
-            Object value = args[1].as(Object.class);
-            FileConfiguration data = dataManager.getScriptData(this);
-            data.set(key, value);
-            dataManager.saveScriptData(this);
+            // Copy out of the context; the value is written later on the data thread
+            dataManager.set(this, args[0].asString(), HostValues.toHost(args[1]));
             return true;
         }
         return false;
@@ -583,6 +700,256 @@ public class ScriptInstance implements AutoCloseable {
         return true;
     }
     
+    private Object getDataValueAsync(Value... args) {
+        if (args.length >= 1) {
+            String key = args[0].asString();
+            Object def = args.length > 1 ? HostValues.toHost(args[1]) : null;
+            return toPromise(dataManager.getAsync(this, key, def));
+        }
+        return null;
+    }
+    
+    private Object saveDataAsync(Value... args) {
+        return toPromise(dataManager.saveAsync(this));
+    }
+    
+    private Object getDataCounter(Value... args) {
+        if (args.length >= 1) {
+            return dataManager.getCounter(this, args[0].asString());
+        }
+        return null;
+    }
+    
+    private Object getDataLongMap(Value... args) {
+        if (args.length >= 1) {
+            return dataManager.getLongMap(this, args[0].asString());
+        }
+        return null;
+    }
+    
+    // File methods
+    private Object readFileAsync(Value... args) {
+        if (args.length >= 1) {
+            Path file;
+            try {
+                file = resolveDataPath(args[0].asString());
+            } catch (RuntimeException e) {
+                return toPromise(CompletableFuture.failedFuture(e));
+            }
+            return toPromise(scheduler.getAsyncExecutor().supply(
+                () -> Files.readString(file, StandardCharsets.UTF_8)));
+        }
+        return null;
+    }
+    
+    private Object writeFileAsync(Value... args) {
+        if (args.length >= 2) {
+            Path file;
+            try {
+                file = resolveDataPath(args[0].asString());
+            } catch (RuntimeException e) {
+                return toPromise(CompletableFuture.failedFuture(e));
+            }
+            String content = args[1].asString();
+            return toPromise(scheduler.getAsyncExecutor().supply(() -> {
+                Files.createDirectories(file.getParent());
+                Files.writeString(file, content, StandardCharsets.UTF_8);
+                return true;
+            }));
+        }
+        return null;
+    }
+    
+    /**
+     * Resolves a script-supplied path against the script's own folder,
+     * {@code files/<script file name>} in the plugin's data folder. Checked before any I/O.
+     * @throws SecurityException if the script's policy does not allow file system access
+     * @throws IllegalArgumentException if the path leads outside the script's folder
+     */
+    private Path resolveDataPath(String path) {
+        if (!securityManager.getPolicy(this).isFileSystemAccessAllowed()) {
+            throw new SecurityException("File access is not allowed for script " + scriptFile.getName() +
+                    "; set allowFileSystemAccess in its permissions.yml policy");
+        }
+        Path root = plugin.getDataFolder().toPath().resolve("files").resolve(scriptFile.getName())
+                .toAbsolutePath().normalize();
+        Path file = root.resolve(path).normalize();
+        if (!file.startsWith(root) || file.equals(root)) {
+            throw new IllegalArgumentException("Path is outside the script's file folder: " + path);
+        }
+        return file;
+    }
+    
+    // Async methods
+    
+    /**
+     * {@code poly.async(fn, ...args)}: runs the function on the script's async lane and returns a
+     * promise of its result. Like every promise from the script API, it settles where it was
+     * created: on the main thread at the next tick if it was called from the main thread,
+     * otherwise on the script's async lane.
+     */
+    private Object runAsyncFunction(Value... args) {
+        if (args.length >= 1 && args[0].canExecute()) {
+            Value function = args[0];
+            Object[] functionArgs = Arrays.copyOfRange(args, 1, args.length, Object[].class);
+            return toPromise(submit("async", () -> function.execute(functionArgs)));
+        }
+        return null;
+    }
+    
+    /**
+     * Wraps a future in a JavaScript promise. The promise is settled on the thread kind that
+     * created it: through the tick scheduler if the caller was the main thread, so main-thread
+     * code can keep using server objects in its callbacks, otherwise on the script's async lane.
+     * Callbacks never run on the thread that completed the future and never race with other
+     * code in the context. Promises made by top-level code settle once the script is enabled,
+     * and promises still pending when the script is unloaded are rejected. Scripts in other
+     * languages receive the future itself.
+     */
+    private Object toPromise(CompletableFuture<?> future) {
+        Value promise = language == ScriptLanguage.JAVASCRIPT && bindings != null ? bindings.getMember("Promise") : null;
+        if (promise == null || !promise.canInstantiate()) {
+            return future;
+        }
+        boolean onMainThread = plugin.getServer().isPrimaryThread();
+        return promise.newInstance((ProxyExecutable) executorArgs -> {
+            Value resolve = executorArgs[0];
+            Value reject = executorArgs[1];
+            Consumer<Throwable> rejecter = error -> reject.executeVoid(toRejection(error));
+            pendingPromises.add(rejecter);
+            future.whenComplete((result, error) -> {
+                if (error == null) {
+                    settle(onMainThread, "async:resolve", rejecter, () -> resolve.executeVoid(result));
+                } else {
+                    settle(onMainThread, "async:reject", rejecter, () -> rejecter.accept(error));
+                }
+            });
+            return null;
+        });
+    }
+    
+    /**
+     * Runs a promise callback in the context, on the main thread or on the script's async lane.
+     * Promises of top-level code are held until {@link #activate()} has enabled the script, and
+     * the main thread takes over if the lane is full. Promises still pending when the script is
+     * closed are rejected by {@link #rejectPendingPromises()} instead.
+     * @param rejecter The promise's entry in {@link #pendingPromises}
+     */
+    private void settle(boolean onMainThread, String entryPoint, Consumer<Throwable> rejecter, Runnable action) {
+        Runnable task = () -> {
+            if (!enabled) {
+                synchronized (heldSettlements) {
+                    if (!enabled && state.get() == ScriptState.INITIALIZING) {
+                        heldSettlements.add(() -> settle(onMainThread, entryPoint, rejecter, action));
+                        return;
+                    }
+                }
+                if (!enabled) {
+                    return;
+                }
+            }
+            if (!pendingPromises.remove(rejecter)) {
+                return; // Already rejected because the script was closed
+            }
+            try {
+                runInContext(entryPoint, action);
+            } catch (ContextBusyException e) {
+                // The async lane held the context too long; settle on the next tick instead
+                pendingPromises.add(rejecter);
+                settle(true, entryPoint, rejecter, action);
+            } catch (Exception e) {
+                plugin.getLogger().log(Level.SEVERE, "Error settling promise in script: " + scriptFile.getName(), e);
+            }
+        };
+        if (onMainThread || !scheduler.getAsyncExecutor().execute(this, task)) {
+            scheduler.getTickScheduler().schedule(task, 1, 0);
+        }
+    }
+    
+    /**
+     * Rejects the promises that have not settled yet while their context is still open, so
+     * script code waiting on them sees the unload instead of waiting forever.
+     */
+    private void rejectPendingPromises() {
+        synchronized (heldSettlements) {
+            heldSettlements.clear();
+        }
+        List<Consumer<Throwable>> rejecters = new ArrayList<>(pendingPromises);
+        pendingPromises.removeAll(rejecters);
+        if (rejecters.isEmpty() || context == null || Thread.currentThread() == shutdownHook) {
+            return; // Nothing to reject, or the JVM is exiting and nothing would observe it
+        }
+        
+        IllegalStateException unloaded = new IllegalStateException("Script was unloaded: " + scriptFile.getName());
+        try {
+            runInContext("async:reject", () -> {
+                for (Consumer<Throwable> rejecter : rejecters) {
+                    try {
+                        rejecter.accept(unloaded);
+                    } catch (Exception e) {
+                        plugin.getLogger().log(Level.WARNING, "Error rejecting promise in script: " + scriptFile.getName(), e);
+                    }
+                }
+            });
+        } catch (Exception e) {
+            plugin.getLogger().log(Level.WARNING, "Could not reject " + rejecters.size() +
+                    " pending promises of script: " + scriptFile.getName(), e);
+        }
+    }
+    
+    /**
+     * @return The script's own error object for errors thrown by the script, otherwise the host exception
+     */
+    private static Object toRejection(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof PolyglotException && ((PolyglotException) cause).isGuestException()) {
+            Value guest = ((PolyglotException) cause).getGuestObject();
+            if (guest != null) {
+                return guest;
+            }
+        }
+        return cause;
+    }
+    
+    // Shared state methods
+    private Object getSharedMap(Value... args) {
+        if (args.length >= 1) {
+            return plugin.getSharedStore().map(args[0].asString());
+        }
+        return null;
+    }
+    
+    private Object getSharedQueue(Value... args) {
+        if (args.length >= 1) {
+            int capacity = args.length > 1 && args[1].fitsInInt() ? args[1].asInt() : SharedStore.DEFAULT_QUEUE_CAPACITY;
+            return plugin.getSharedStore().queue(args[0].asString(), capacity);
+        }
+        return null;
+    }
+    
+    private Object publishMessage(Value... args) {
+        if (args.length >= 2) {
+            // Copied once here, then shared by reference with every subscriber
+            return plugin.getSharedStore().getBus().publish(args[0].asString(), HostValues.toReadOnlyHost(args[1]));
+        }
+        return 0;
+    }
+    
+    private Object subscribeToTopic(Value... args) {
+        if (args.length >= 1) {
+            String topic = args[0].asString();
+            Value handler = args.length > 1 && args[1].canExecute() ? args[1] : null;
+            Value options = args.length > 2 ? args[2] : args.length > 1 && handler == null ? args[1] : null;
+            
+            int capacity = SharedStore.DEFAULT_SUBSCRIPTION_CAPACITY;
+            if (options != null && options.hasMember("capacity") && options.getMember("capacity").fitsInInt()) {
+                capacity = options.getMember("capacity").asInt();
+            }
+            return plugin.getSharedStore().getBus().subscribe(this, topic, handler, capacity);
+        }
+        return null;
+    }
+    
     private Object registerCommand(Value... args) {
         if (args.length >= 2) {
             String command = args[0].asString();
@@ -604,12 +971,15 @@ public class ScriptInstance implements AutoCloseable {
         
         String eventName = args[0].asString();
         Value handler = args[1];
+        Value options = args.length > 2 ? args[2] : null;
         
         if (handler == null || !handler.canExecute()) {
             return false;
         }
         
         try {
+            HandlerOptions handlerOptions = parseHandlerOptions(options);
+            
             // Find the event class
             Class<? extends Event> eventClass = null;
             try {
@@ -625,8 +995,10 @@ public class ScriptInstance implements AutoCloseable {
                 }
             }
             
-            // Register with the event manager using the handler function name
-            eventManager.registerEvent(eventClass, this, eventName);
+            if (!Event.class.isAssignableFrom(eventClass)) {
+                plugin.getLogger().warning("Not an event class: " + eventName);
+                return false;
+            }
             
             // Create the event handler for internal tracking
             ScriptEventHandler eventHandler = new ScriptEventHandler(this, eventClass, eventName, handler);
@@ -637,7 +1009,15 @@ public class ScriptInstance implements AutoCloseable {
             // Also track the event class for unregistration
             registeredEvents.computeIfAbsent(eventClass, k -> ConcurrentHashMap.newKeySet()).add(eventName);
             
-            return true;
+            // Register with the event manager, keeping the returned token for removal. While the
+            // script is loading off the main thread, the Bukkit registration is queued for activate()
+            // and skipped there if poly.off removed the handler in the meantime
+            if (deferRegistrations) {
+                pendingRegistrations.add(() -> applyRegistration(eventHandler, handlerOptions));
+            } else if (!applyRegistration(eventHandler, handlerOptions)) {
+                return false;
+            }
+            return registrationToken(eventHandler);
             
         } catch (Exception e) {
             plugin.getLogger().log(Level.SEVERE, "Error registering event: " + eventName, e);
@@ -645,10 +1025,121 @@ public class ScriptInstance implements AutoCloseable {
         }
     }
     
+    /**
+     * Creates the token {@code poly.on} returns. Its {@code off()} (or {@code unregister()})
+     * removes just the handler it was returned for and returns false once it is gone.
+     */
+    private Object registrationToken(ScriptEventHandler eventHandler) {
+        ProxyExecutable off = args -> unregisterEvent(eventHandler);
+        return ProxyObject.fromMap(Map.<String, Object>of("off", off, "unregister", off));
+    }
+    
+    /**
+     * Registers a tracked handler with the event manager. If the event manager refuses it, the
+     * handler is logged and dropped from tracking, whether this runs from {@code poly.on} or
+     * from the registrations queued for {@link #activate()}.
+     * @return true if the handler was registered
+     */
+    private boolean applyRegistration(ScriptEventHandler eventHandler, HandlerOptions handlerOptions) {
+        try {
+            eventHandler.register(() -> eventManager.registerEvent(eventHandler.getEventClass(), this,
+                eventHandler.getEventName(), eventHandler.getHandler(), handlerOptions));
+            return true;
+        } catch (Exception e) {
+            plugin.getLogger().log(Level.SEVERE, "Error registering event: " + eventHandler.getEventName(), e);
+            unregisterEvent(eventHandler);
+            return false;
+        }
+    }
+    
+    /**
+     * Builds handler options from a {@code {priority, ignoreCancelled, filter, batch, batchSize, coalesce, async}}
+     * object. With {@code batch} set, the handler is called once per tick with an array of the
+     * events received since the last call instead of once per event; those events have already
+     * finished firing, so cancelling or modifying them has no effect. With {@code async} set, it
+     * is called off the main thread with a read-only snapshot of the event, though the script's
+     * main-thread calls still wait for it to leave the context.
+     */
+    private HandlerOptions parseHandlerOptions(Value options) {
+        if (options == null || !options.hasMembers()) {
+            return HandlerOptions.DEFAULT;
+        }
+        
+        HandlerOptions.Builder builder = new HandlerOptions.Builder();
+        Value priority = options.getMember("priority");
+        if (priority != null && priority.isString()) {
+            builder.priority(EventPriority.valueOf(priority.asString().toUpperCase(Locale.ROOT)));
+        }
+        Value ignoreCancelled = options.getMember("ignoreCancelled");
+        if (ignoreCancelled != null && ignoreCancelled.isBoolean()) {
+            builder.ignoreCancelled(ignoreCancelled.asBoolean());
+        }
+        builder.filter(parseEventFilter(options.getMember("filter")));
+        
+        Value batch = options.getMember("batch");
+        if (batch != null && batch.isBoolean()) {
+            builder.batched(batch.asBoolean());
+        }
+        Value batchSize = options.getMember("batchSize");
+        if (batchSize != null && batchSize.fitsInInt()) {
+            builder.batchCapacity(batchSize.asInt());
+        }
+        Value async = options.getMember("async");
+        if (async != null && async.isBoolean()) {
+            builder.async(async.asBoolean());
+        }
+        Value coalesce = options.getMember("coalesce");
+        if (coalesce != null && coalesce.isString()) {
+            // Coalescing only makes sense on a batch
+            builder.batched(true).coalesceKey(coalesce.asString());
+        }
+        return builder.build();
+    }
+    
+    /**
+     * Builds an event filter from a {@code {world, entityType, permission}} object.
+     * Worlds and entity types may be given as a single string or an array of strings.
+     * @return The filter, or null if no conditions were given
+     */
+    private EventFilter parseEventFilter(Value filterValue) {
+        if (filterValue == null || !filterValue.hasMembers()) {
+            return null;
+        }
+        
+        EventFilter.Builder builder = new EventFilter.Builder();
+        for (String world : asStringList(filterValue.getMember("world"))) {
+            builder.world(world);
+        }
+        for (String entityType : asStringList(filterValue.getMember("entityType"))) {
+            builder.entityType(EntityType.valueOf(entityType.toUpperCase(Locale.ROOT)));
+        }
+        Value permission = filterValue.getMember("permission");
+        if (permission != null && permission.isString()) {
+            builder.permission(permission.asString());
+        }
+        return builder.isEmpty() ? null : builder.build();
+    }
+    
+    private static List<String> asStringList(Value value) {
+        if (value == null || value.isNull()) {
+            return Collections.emptyList();
+        }
+        if (value.isString()) {
+            return Collections.singletonList(value.asString());
+        }
+        List<String> result = new ArrayList<>();
+        if (value.hasArrayElements()) {
+            for (long i = 0; i < value.getArraySize(); i++) {
+                result.add(value.getArrayElement(i).asString());
+            }
+        }
+        return result;
+    }
+    
     /**
      * Unregisters an event handler.
      * @param handler The event handler to unregister
-     * @return true if the event was unregistered, false otherwise
+     * @return true if the handler was registered and is now removed, false otherwise
      */
     public boolean unregisterEvent(ScriptEventHandler handler) {
         if (handler == null) {
@@ -657,43 +1148,23 @@ public class ScriptInstance implements AutoCloseable {
         
         try {
             // Remove from our tracking
+            AtomicBoolean tracked = new AtomicBoolean(false);
             eventHandlers.computeIfPresent(handler.getEventName(), (k, list) -> {
-                list.remove(handler);
+                tracked.set(list.remove(handler));
                 return list.isEmpty() ? null : list;
             });
             
-            // Unregister from the event manager
-            // The EventManager only has a method to unregister all events for a script
-            // So we'll need to unregister all events and then re-register the remaining ones
-            // This is not ideal but works with the current EventManager implementation
-            eventManager.unregisterEvents(this);
-            
-            // Remove the unregistered handler from our tracking
-            List<ScriptEventHandler> handlers = eventHandlers.get(handler.getEventName());
-            if (handlers != null) {
-                handlers.remove(handler);
-                if (handlers.isEmpty()) {
-                    eventHandlers.remove(handler.getEventName());
-                }
+            if (!eventHandlers.containsKey(handler.getEventName())) {
+                registeredEvents.computeIfPresent(handler.getEventClass(), (key, set) -> {
+                    set.remove(handler.getEventName());
+                    return set.isEmpty() ? null : set;
+                });
             }
             
-            // Re-register remaining handlers for this event class
-            registeredEvents.computeIfPresent(handler.getEventClass(), (key, set) -> {
-                set.remove(handler.getHandlerName());
-                return set.isEmpty() ? null : set;
-            });
-            
-            // Re-register remaining handlers for this event class
-            for (Map.Entry<String, List<ScriptEventHandler>> entry : eventHandlers.entrySet()) {
-                for (ScriptEventHandler h : entry.getValue()) {
-                    if (h.getEventClass().equals(handler.getEventClass())) {
-                        // Register the event with the script instance and handler name
-                        eventManager.registerEvent(h.getEventClass(), this, entry.getKey());
-                    }
-                }
-            }
+            // Remove only this handler's registration; other handlers stay registered
+            handler.unregister();
             
-            return true;
+            return tracked.get();
         } catch (Exception e) {
             plugin.getLogger().log(Level.SEVERE, "Error unregistering event handler", e);
             return false;
@@ -739,32 +1210,29 @@ public class ScriptInstance implements AutoCloseable {
             // Get all handlers for this event
             List<ScriptEventHandler> handlers = eventHandlers.get(eventName);
             if (handlers != null && !handlers.isEmpty()) {
-                // If a specific handler function was provided, only remove that one
+                // If a specific handler function was provided, only remove the handlers registered
+                // with that same function value; names would match every anonymous function
                 if (args.length > 1 && args[1] != null) {
-                    String handlerName = args[1].getMember("name").asString();
-                    if (handlerName != null) {
-                        boolean removed = handlers.removeIf(handler -> 
-                            handler.getHandlerName() != null && 
-                            handler.getHandlerName().equals(handlerName)
-                        );
-                        
-                        if (handlers.isEmpty()) {
-                            eventHandlers.remove(eventName);
-                            registeredEvents.remove(eventClass);
+                    boolean removed = false;
+                    for (ScriptEventHandler handler : handlers) {
+                        if (handler.getHandler().equals(args[1])) {
+                            removed |= unregisterEvent(handler);
                         }
-                        return removed;
                     }
+                    return removed;
                 }
                 
-                // Remove all handlers for this event
-                // The EventManager will handle the cleanup through scriptEvents tracking
-                eventManager.unregisterEvents(this);
+                // Remove all handlers for this event, leaving the script's other events registered
+                handlers.forEach(ScriptEventHandler::unregister);
                 
                 // Remove from our tracking
                 eventHandlers.remove(eventName);
                 
-                // Also remove from registered events
-                registeredEvents.remove(eventClass);
+                // Also remove the name from registered events, keeping other names for the same class
+                registeredEvents.computeIfPresent(eventClass, (key, set) -> {
+                    set.remove(eventName);
+                    return set.isEmpty() ? null : set;
+                });
                 
                 return true;
             }
@@ -819,7 +1287,9 @@ public class ScriptInstance implements AutoCloseable {
             if (function == null || !function.canExecute()) {
                 return null;
             }
-            return function.execute(args);
+            return callInContext("function:" + functionName, () -> function.execute(args));
+        } catch (ContextBusyException e) {
+            return null;
         } catch (Exception e) {
             getLogger().log(Level.SEVERE, 
                 String.format("Error executing script function '%s' in %s", 
@@ -840,7 +1310,9 @@ public class ScriptInstance implements AutoCloseable {
         }
         
         try {
-            return function.execute(args);
+            return callInContext("function", () -> function.execute(args));
+        } catch (ContextBusyException e) {
+            return null;
         } catch (Exception e) {
             getLogger().log(Level.SEVERE, 
                 "Error executing script function in " + scriptFile.getName(), e);
@@ -861,6 +1333,9 @@ public class ScriptInstance implements AutoCloseable {
             // Unregister all event handlers
             unregisterAllEventHandlers();
             
+            // Stop scheduled tasks before they fire into the closed context
+            scheduler.cancelTasks(this);
+            
             // Close all resources
             safeClose();
             
@@ -932,6 +1407,285 @@ public class ScriptInstance implements AutoCloseable {
         }
     }
     
+    /**
+     * Calls a pre-resolved event handler function in the script.
+     * @param handler The handler function, resolved once at registration
+     * @param handlerName The name of the handler, used in log messages
+     * @param entryPoint The profiler entry point, such as {@code event:onJoin}
+     * @param event The event to pass to the handler
+     */
+    public void callEvent(Value handler, String handlerName, String entryPoint, Event event) {
+        if (!enabled) {
+            return;
+        }
+        
+        try {
+            runInContext(entryPoint, () -> handler.executeVoid(event));
+        } catch (ContextBusyException e) {
+            // Skipped while the async lane held the context; counted and reported
+        } catch (Exception e) {
+            plugin.getLogger().log(Level.SEVERE, "Error calling event handler: " + handlerName, e);
+        }
+    }
+    
+    /**
+     * Queues an event snapshot for a handler on this script's async lane. Snapshots are handled
+     * one at a time, in the order they were fired, together with the script's async tasks. If
+     * the lane is backed up the snapshot is dropped and counted. The handler still runs in the
+     * script's only context, so while it runs, main-thread calls into this script wait for it
+     * as described in {@link #callInContext}.
+     * @param handler The handler function, resolved once at registration
+     * @param handlerName The name of the handler, used in log messages
+     * @param entryPoint The profiler entry point, such as {@code async-event:onJoin}
+     * @param snapshot The snapshot taken on the thread that fired the event
+     */
+    public void callEventAsync(Value handler, String handlerName, String entryPoint, Object snapshot) {
+        if (!enabled) {
+            return;
+        }
+        
+        boolean queued = scheduler.getAsyncExecutor().execute(this, () -> {
+            if (!enabled) {
+                return;
+            }
+            try {
+                runInContext(entryPoint, () -> handler.executeVoid(snapshot));
+            } catch (Exception e) {
+                plugin.getLogger().log(Level.SEVERE, "Error calling async event handler: " + handlerName, e);
+            }
+        });
+        if (!queued) {
+            droppedAsyncEvents.incrementAndGet();
+        }
+    }
+    
+    /**
+     * Runs code in the script context on the script's async lane instead of the calling thread.
+     * The caller does not wait for the context, but main-thread calls into this script do while
+     * the action runs. Results that
+     * are script values must be converted to host objects inside the action, since they cannot
+     * be used once the context has been left.
+     * @param entryPoint The entry point name used for profiling
+     * @param action The code to run
+     * @return A future completed with the result on the lane's thread, or failed if the script
+     *         is disabled first
+     */
+    public <T> CompletableFuture<T> submit(String entryPoint, Supplier<T> action) {
+        if (!acceptsAsyncWork()) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Script is not enabled: " + scriptFile.getName()));
+        }
+        return scheduler.getAsyncExecutor().submit(this, () -> {
+            if (!acceptsAsyncWork()) {
+                throw new IllegalStateException("Script is not enabled: " + scriptFile.getName());
+            }
+            return callInContext(entryPoint, action);
+        });
+    }
+    
+    /**
+     * @return true if the script is enabled or its top-level code is still loading, which may
+     *         already hand work to the async lane
+     */
+    private boolean acceptsAsyncWork() {
+        return enabled || state.get() == ScriptState.INITIALIZING;
+    }
+    
+    /**
+     * @return The number of async event snapshots dropped because the script's async lane was full
+     */
+    public long getDroppedAsyncEvents() {
+        return droppedAsyncEvents.get();
+    }
+    
+    /**
+     * Runs code that enters the script context.
+     * @see #callInContext(String, Supplier)
+     */
+    private void runInContext(String entryPoint, Runnable action) {
+        callInContext(entryPoint, () -> {
+            action.run();
+            return null;
+        });
+    }
+    
+    /**
+     * Runs code that enters the script context and returns its result. A context can only be
+     * entered by one thread at a time, so calls from the main thread and the script's async
+     * lane are serialized here. The outermost call resets the statement limit,
+     * is watched against the configured time and memory budgets and is recorded in the
+     * script's profiler under the given entry point.
+     * <p>
+     * Off the main thread the call waits as long as it takes for the context. The main thread
+     * must not be stalled by a long async task, so it waits at most
+     * {@code performance.main-thread-lock-wait-ms} and then skips the call; the time it spent
+     * waiting is recorded in the tick timings as the script's {@code lock-wait} entry point.
+     * Async tasks themselves are bounded only by the watchdog's execution time budget.
+     * @param entryPoint The entry point name used for profiling, such as {@code event:PlayerJoinEvent}
+     * @throws ContextBusyException if the call was skipped on the main thread
+     */
+    private <T> T callInContext(String entryPoint, Supplier<T> action) {
+        lockContext(entryPoint);
+        ScriptWatchdog.Invocation invocation = null;
+        boolean outermost = contextLock.getHoldCount() == 1;
+        boolean profiled = outermost && metricsEnabled;
+        long startNanos = profiled ? System.nanoTime() : 0;
+        long startCpuNanos = profiled && isThreadCpuTimeEnabled ? threadMXBean.getCurrentThreadCpuTime() : -1;
+        try {
+            Context current = context;
+            if (outermost && current != null) {
+                if (plugin.getResourceLimits() != null) {
+                    current.resetLimits();
+                }
+                ScriptWatchdog watchdog = plugin.getWatchdog();
+                if (watchdog != null) {
+                    invocation = watchdog.begin(current, scriptFile.getName(), this::quarantine);
+                }
+            }
+            return action.get();
+        } catch (PolyglotException e) {
+            if (e.isResourceExhausted()) {
+                quarantine("exceeded the statement limit");
+            }
+            throw e;
+        } finally {
+            if (invocation != null) {
+                invocation.close();
+            }
+            if (profiled) {
+                long wallNanos = System.nanoTime() - startNanos;
+                long cpuNanos = startCpuNanos >= 0 ? threadMXBean.getCurrentThreadCpuTime() - startCpuNanos : -1;
+                profiler.record(entryPoint, wallNanos, cpuNanos);
+                plugin.getTickTimings().record(scriptFile.getName(), entryPoint, wallNanos);
+            }
+            contextLock.unlock();
+        }
+    }
+    
+    /**
+     * Takes the context lock, waiting for it only as long as {@link #callInContext} allows.
+     */
+    private void lockContext(String entryPoint) {
+        if (contextLock.tryLock()) {
+            return;
+        }
+        if (!plugin.getServer().isPrimaryThread()) {
+            contextLock.lock();
+            return;
+        }
+        
+        long waitStart = System.nanoTime();
+        boolean locked;
+        if (mainThreadLockWaitNanos > 0) {
+            try {
+                locked = contextLock.tryLock(mainThreadLockWaitNanos, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                locked = false;
+            }
+        } else {
+            contextLock.lock();
+            locked = true;
+        }
+        plugin.getTickTimings().record(scriptFile.getName(), "lock-wait", System.nanoTime() - waitStart);
+        
+        if (!locked) {
+            skippedMainThreadCalls.incrementAndGet();
+            long now = System.nanoTime();
+            long last = lastBusyWarning.get();
+            if (now - last >= BUSY_WARNING_INTERVAL_NANOS && lastBusyWarning.compareAndSet(last, now)) {
+                plugin.getLogger().warning("Skipped " + entryPoint + " in " + scriptFile.getName() + " on the main thread " +
+                        "because an async task held the script for over " +
+                        TimeUnit.NANOSECONDS.toMillis(mainThreadLockWaitNanos) + "ms (" +
+                        skippedMainThreadCalls.get() + " calls skipped so far).");
+            }
+            throw new ContextBusyException(scriptFile.getName());
+        }
+    }
+    
+    /**
+     * @return The number of main-thread calls skipped because the async lane held the context
+     */
+    public long getSkippedMainThreadCalls() {
+        return skippedMainThreadCalls.get();
+    }
+    
+    /**
+     * Stops a script that exceeded a resource limit. Its context has already been cancelled;
+     * event handlers, tasks and the context are released on the main thread and the script
+     * stays in the {@link ScriptState#ERROR} state until it is reloaded.
+     * @param reason The limit that was exceeded, for the log
+     */
+    void quarantine(String reason) {
+        if (state.getAndSet(ScriptState.ERROR) == ScriptState.ERROR) {
+            return;
+        }
+        
+        enabled = false;
+        errorCount.incrementAndGet();
+        plugin.getLogger().severe("Quarantined script " + scriptFile.getName() + ": " + reason);
+        
+        Runnable cleanup = () -> {
+            unregisterAllEventHandlers();
+            scheduler.cancelTasks(this);
+            safeClose();
+            state.set(ScriptState.ERROR);
+        };
+        // Deferred so the cleanup never runs inside a call into the context being released
+        if (plugin.isEnabled()) {
+            Bukkit.getScheduler().runTask(plugin, cleanup);
+        }
+    }
+    
+    /**
+     * Calls a batched event handler with the events collected during the last tick.
+     * @param handler The handler function, resolved once at registration
+     * @param handlerName The name of the handler, used in log messages
+     * @param entryPoint The profiler entry point, such as {@code batch-event:onMove}
+     * @param events The buffered events, oldest first
+     */
+    public void callEventBatch(Value handler, String handlerName, String entryPoint, Object[] events) {
+        if (!enabled) {
+            return;
+        }
+        
+        try {
+            runInContext(entryPoint, () -> handler.executeVoid(ProxyArray.fromArray(events)));
+        } catch (ContextBusyException e) {
+            // Skipped while the async lane held the context; counted and reported
+        } catch (Exception e) {
+            plugin.getLogger().log(Level.SEVERE, "Error calling batched event handler: " + handlerName, e);
+        }
+    }
+    
+    /**
+     * Delivers a message bus message to a subscription handler.
+     * @param handler The script function
+     * @param topic The topic the message was published to
+     * @param message The message
+     */
+    public void callMessageHandler(Value handler, String topic, Object message) {
+        if (!enabled) {
+            return;
+        }
+        
+        try {
+            runInContext("message:" + topic, () -> handler.executeVoid(message, topic));
+        } catch (ContextBusyException e) {
+            // Skipped while the async lane held the context; counted and reported
+        } catch (Exception e) {
+            plugin.getLogger().log(Level.SEVERE, "Error handling message on topic " + topic +
+                    " in script " + scriptFile.getName(), e);
+        }
+    }
+    
+    /**
+     * Gets the execution statistics of this script.
+     * @return The profiler holding per-entry-point statistics
+     */
+    public ScriptProfiler getProfiler() {
+        return profiler;
+    }
+    
     /**
      * Gets the script file associated with this instance.
      * @return The script file
@@ -977,12 +1731,17 @@ public class ScriptInstance implements AutoCloseable {
     }
     
     /**
-     * Closes the GraalVM context if it exists.
+     * Hands the GraalVM context back to the pool, which closes it in the background.
      */
     private void closeContext() {
         if (context != null) {
             try {
-                context.close(true); // Interrupt any running executions
+                ContextPool contextPool = plugin.getContextPool();
+                if (contextPool != null) {
+                    contextPool.release(context);
+                } else {
+                    context.close(true); // Interrupt any running executions
+                }
             } catch (Exception e) {
                 plugin.getLogger().log(Level.SEVERE, 
                     "Error closing script context: " + scriptFile.getName(), e);
@@ -994,35 +1753,6 @@ public class ScriptInstance implements AutoCloseable {
         }
     }
     
-    /**
-     * Shuts down an executor service and waits for termination.
-     */
-    private void shutdownExecutor(ExecutorService executor, String name) {
-        if (executor == null || executor.isShutdown()) {
-            return;
-        }
-        
-        executor.shutdown(); // Disable new tasks from being submitted
-        try {
-            // Wait a while for existing tasks to terminate
-            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
-                // Cancel currently executing tasks
-                executor.shutdownNow();
-                // Wait a while for tasks to respond to being cancelled
-                if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
-                    plugin.getLogger().warning(
-                        String.format("%s did not terminate for script: %s", 
-                            name, scriptFile.getName()));
-                }
-            }
-        } catch (InterruptedException ie) {
-            // (Re-)Cancel if current thread also interrupted
-            executor.shutdownNow();
-            // Preserve interrupt status
-            Thread.currentThread().interrupt();
-        }
-    }
-    
     @Override
     public void close() {
         try {
@@ -1039,21 +1769,30 @@ public class ScriptInstance implements AutoCloseable {
     private void safeClose() {
         com.google.common.base.Stopwatch timer = com.google.common.base.Stopwatch.createStarted();
         try {
+            // Stop message delivery before the handlers' context goes away
+            if (plugin.getSharedStore() != null) {
+                plugin.getSharedStore().getBus().unsubscribeAll(this);
+            }
+            
+            // Let pending promises fail while their context is still open
+            rejectPendingPromises();
+            
             // Close the context first to prevent new operations
             closeContext();
             
             // Close all registered resources
             closeAllResources();
             
-            // Shutdown async executor
-            shutdownExecutor(asyncExecutor, "async executor");
+            // Drop queued async tasks, events and calls
+            scheduler.getAsyncExecutor().remove(this);
+            
+            removeShutdownHook();
             
             // Clear all collections
             scriptData.clear();
             eventHandlers.clear();
             registeredEvents.clear();
             registeredCommands.clear();
-            threadCpuStartTimes.clear();
             
             // Update state
             enabled = false;
@@ -1071,6 +1810,32 @@ public class ScriptInstance implements AutoCloseable {
         }
     }
     
+    /**
+     * Removes the JVM shutdown hook once the script has been closed, so closed instances are not
+     * kept reachable by the runtime until the server stops.
+     */
+    private void removeShutdownHook() {
+        Thread hook = shutdownHook;
+        shutdownHook = null;
+        if (hook != null) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(hook);
+            } catch (IllegalStateException e) {
+                // The JVM is already shutting down, possibly running this very hook
+            }
+        }
+    }
+    
+    /**
+     * Thrown when the main thread gives up waiting for a script context held by the script's
+     * async lane. The call was skipped and has already been counted and reported.
+     */
+    public static class ContextBusyException extends RuntimeException {
+        public ContextBusyException(String scriptName) {
+            super("Script context of " + scriptName + " is busy on its async lane");
+        }
+    }
+    
     public enum ScriptLanguage {
         JAVASCRIPT("js", "application/javascript"),
         PYTHON("python", "application/python"),
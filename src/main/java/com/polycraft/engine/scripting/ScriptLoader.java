@@ -18,7 +18,7 @@ import java.util.regex.Pattern;
  */
 public class ScriptLoader {
     
-    private static final Pattern REQUIRE_PATTERN = Pattern.compile("//\s*@require\s+([^\s]+)");
+    private static final Pattern REQUIRE_PATTERN = Pattern.compile("//\\s*@require\\s+(\\S+)");
     private static final String SCRIPT_HEADER = "// Auto-generated by PolyCraft Engine - Do not edit!\n";
     
     private final PolyCraftEngine plugin;
@@ -152,14 +152,43 @@ public class ScriptLoader {
     }
     
     /**
-     * Find a dependency file in the script's directory or the libs folder.
-     * This is a package-private method to be used by other classes in the same package.
-     * @param baseDir The base directory to search in
-     * @param depName The dependency name or path
-     * @return The dependency file, or null if not found
+     * Get the files a script is built from besides itself: its config file, the files it pulls
+     * in with {@code @require}, including nested ones, and the dependencies named in its config.
+     * @param scriptFile The script file
+     * @return The files, which may not all exist
      */
-    File findDependencyPackage(File baseDir, String depName) {
-        return findDependency(baseDir, depName);
+    Set<File> getDependencyFiles(File scriptFile) {
+        Set<File> files = new LinkedHashSet<>();
+        files.add(new File(scriptFile.getParentFile(), scriptFile.getName() + ".yml"));
+        collectRequires(scriptFile, files);
+        
+        ScriptConfig config = getScriptConfig(scriptFile);
+        if (config != null) {
+            for (String depName : config.getDependencies()) {
+                File depFile = findDependency(scriptFile.getParentFile(), depName);
+                if (depFile != null) {
+                    files.add(depFile);
+                }
+            }
+        }
+        return files;
+    }
+    
+    private void collectRequires(File file, Set<File> files) {
+        String content;
+        try {
+            content = new String(java.nio.file.Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return;
+        }
+        
+        Matcher matcher = REQUIRE_PATTERN.matcher(content);
+        while (matcher.find()) {
+            File depFile = findDependency(file.getParentFile(), matcher.group(1));
+            if (depFile != null && files.add(depFile)) {
+                collectRequires(depFile, files);
+            }
+        }
     }
     
     /**
@@ -29,6 +29,7 @@ public class ScriptManager {
     private final Map<String, ScriptInstance> loadedScripts = new ConcurrentHashMap<>();
     private final ScriptLoader scriptLoader;
     private WatchService watchService;
+    private volatile ScriptReloadQueue reloadQueue;
     private Thread watchThread;
     private boolean watching = false;
     private final File scriptsFolder;
@@ -145,37 +146,17 @@ public class ScriptManager {
             }
         }
         
-        // Then load scripts in dependency order
-        Set<File> loaded = new HashSet<>();
+        // Scripts that are already loaded are replaced
         for (File scriptFile : scriptFiles) {
-            if (!loaded.contains(scriptFile)) {
-                loadScriptWithDependencies(scriptFile, configs, loaded);
-            }
-        }
-    }
-    
-    private void loadScriptWithDependencies(File scriptFile, Map<File, ScriptLoader.ScriptConfig> configs, Set<File> loaded) {
-        // Already loaded
-        if (loaded.contains(scriptFile)) {
-            return;
+            unloadScript(scriptFile.getName());
         }
         
-        // Mark as visited to detect circular dependencies
-        loaded.add(scriptFile);
+        // Then load scripts layer by layer, building independent scripts in parallel
+        ScriptBootstrapper bootstrapper = new ScriptBootstrapper(
+            plugin, scriptLoader, plugin.getScriptConfig().getBootstrapThreads());
+        int enabled = bootstrapper.bootstrap(scriptFiles, configs, this::createScript, this::registerScript);
         
-        // Load dependencies first
-        ScriptLoader.ScriptConfig config = configs.get(scriptFile);
-        if (config != null) {
-            for (String dep : config.getDependencies()) {
-                File depFile = scriptLoader.findDependency(scriptFile.getParentFile(), dep);
-                if (depFile != null && !loaded.contains(depFile)) {
-                    loadScriptWithDependencies(depFile, configs, loaded);
-                }
-            }
-        }
-        
-        // Load the script
-        loadScript(scriptFile);
+        plugin.getLogger().info("Loaded " + enabled + "/" + scriptFiles.size() + " scripts");
     }
     
     public boolean loadScript(File scriptFile) {
@@ -187,38 +168,11 @@ public class ScriptManager {
         }
         
         try {
-            // Use existing managers from the plugin instance
-            ScriptInstance script = new ScriptInstance(
-                plugin, 
-                scriptFile, 
-                scriptScheduler,
-                plugin.getEventManager(),
-                plugin.getScriptConfig(),
-                plugin.getDataManager()
-            );
-            
-            // Configure the script
-            // The config and data manager are already initialized in the ScriptInstance constructor
-            // No need to call load() here as it's handled internally
+            ScriptInstance script = createScript(scriptFile);
             
             // Initialize the script
             if (script.initialize()) {
-                loadedScripts.put(scriptName, script);
-                
-                // Log script info
-                ScriptLoader.ScriptConfig scriptConfig = scriptLoader.getScriptConfig(scriptFile);
-                if (scriptConfig != null) {
-                    plugin.getLogger().info(String.format(
-                        "Loaded script: %s v%s by %s - %s",
-                        scriptConfig.getName(),
-                        scriptConfig.getVersion(),
-                        scriptConfig.getAuthor(),
-                        scriptConfig.getDescription()
-                    ));
-                } else {
-                    plugin.getLogger().info("Loaded script: " + scriptName);
-                }
-
+                registerScript(script);
                 return true;
             }
         } catch (Exception e) {
@@ -227,6 +181,76 @@ public class ScriptManager {
 
         return false;
     }
+    
+    /**
+     * Applies a batch of file changes collected by the watcher. Called on the reload thread:
+     * removed and affected scripts are unloaded on the main thread, then the affected scripts
+     * are loaded in dependency order with their contexts built off the main thread.
+     * @param removed The names of scripts whose files were deleted
+     * @param affected The script files to reload
+     */
+    void reloadBatch(Collection<String> removed, List<File> affected) {
+        ScriptBootstrapper bootstrapper = new ScriptBootstrapper(
+            plugin, scriptLoader, plugin.getScriptConfig().getBootstrapThreads());
+        bootstrapper.callOnMainThread(() -> {
+            for (String scriptName : removed) {
+                unloadScript(scriptName);
+            }
+            for (File scriptFile : affected) {
+                unloadScript(scriptFile.getName());
+            }
+            return null;
+        });
+        if (affected.isEmpty()) {
+            return;
+        }
+        
+        Map<File, ScriptLoader.ScriptConfig> configs = new HashMap<>();
+        for (File scriptFile : affected) {
+            ScriptLoader.ScriptConfig config = scriptLoader.getScriptConfig(scriptFile);
+            if (config != null) {
+                configs.put(scriptFile, config);
+            }
+        }
+        int enabled = bootstrapper.bootstrap(affected, configs, this::createScript, this::registerScript);
+        plugin.getLogger().info("Reloaded " + enabled + "/" + affected.size() + " scripts");
+    }
+    
+    /**
+     * Creates an unloaded script instance using the plugin's shared managers.
+     */
+    private ScriptInstance createScript(File scriptFile) {
+        return new ScriptInstance(
+            plugin, 
+            scriptFile, 
+            scriptScheduler,
+            plugin.getEventManager(),
+            plugin.getScriptConfig(),
+            plugin.getDataManager()
+        );
+    }
+    
+    /**
+     * Tracks an enabled script and logs its info.
+     */
+    private void registerScript(ScriptInstance script) {
+        File scriptFile = script.getScriptFile();
+        loadedScripts.put(scriptFile.getName(), script);
+        
+        // Log script info
+        ScriptLoader.ScriptConfig scriptConfig = scriptLoader.getScriptConfig(scriptFile);
+        if (scriptConfig != null) {
+            plugin.getLogger().info(String.format(
+                "Loaded script: %s v%s by %s - %s",
+                scriptConfig.getName(),
+                scriptConfig.getVersion(),
+                scriptConfig.getAuthor(),
+                scriptConfig.getDescription()
+            ));
+        } else {
+            plugin.getLogger().info("Loaded script: " + scriptFile.getName());
+        }
+    }
 
     /**
      * Reloads all scripts.
@@ -273,11 +297,14 @@ public class ScriptManager {
     private void startWatching() {
         try {
             watchService = FileSystems.getDefault().newWatchService();
-            Path path = scriptsFolder.toPath();
-            path.register(watchService, 
-                StandardWatchEventKinds.ENTRY_CREATE,
-                StandardWatchEventKinds.ENTRY_DELETE,
-                StandardWatchEventKinds.ENTRY_MODIFY);
+            for (File folder : new File[] {scriptsFolder, scriptLoader.getLibsFolder()}) {
+                folder.toPath().register(watchService, 
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+            reloadQueue = new ScriptReloadQueue(plugin, this, scriptLoader,
+                plugin.getScriptConfig().getReloadDebounceMillis());
 
             watching = true;
             watchThread = new Thread(this::watchDirectory, "ScriptWatcher");
@@ -306,6 +333,11 @@ public class ScriptManager {
             watchThread = null;
         }
 
+        if (reloadQueue != null) {
+            reloadQueue.shutdown();
+            reloadQueue = null;
+        }
+
         if (watchService != null) {
             try {
                 watchService.close();
@@ -323,8 +355,9 @@ public class ScriptManager {
         try {
             WatchKey key;
             while (watching && (key = watchService.take()) != null) {
+                Path dir = (Path) key.watchable();
                 for (WatchEvent<?> event : key.pollEvents()) {
-                    handleFileEvent(event);
+                    handleFileEvent(dir, event);
                 }
                 key.reset();
             }
@@ -339,12 +372,20 @@ public class ScriptManager {
     }
 
     /**
-     * Handles a file event in the scripts folder.
+     * Hands a file event to the reload queue, which reloads affected scripts once the file
+     * has settled.
+     * @param dir The watched folder the event came from
      * @param event The file event
      */
-    private void handleFileEvent(WatchEvent<?> event) {
-        // Ignore non-file events
+    private void handleFileEvent(Path dir, WatchEvent<?> event) {
+        ScriptReloadQueue queue = reloadQueue;
+        if (queue == null) {
+            return;
+        }
+        
+        // Events were lost, so compare the folders against what was last seen
         if (event.kind() == OVERFLOW) {
+            queue.rescan();
             return;
         }
         
@@ -352,54 +393,16 @@ public class ScriptManager {
         WatchEvent<Path> pathEvent = (WatchEvent<Path>) event;
         Path filename = pathEvent.context();
         
-        // Get the directory being watched
-        Path dir = scriptsFolder.toPath();
-        File changedFile = dir.resolve(filename).toFile();
-        
         // Only process script files and configs
         String name = filename.toString().toLowerCase();
         boolean isScript = name.endsWith(".js") || name.endsWith(".py") || name.endsWith(".rb") || name.endsWith(".wasm");
         boolean isConfig = name.endsWith(".yml") || name.endsWith(".yaml");
         
         if (isScript || isConfig) {
-            // Handle the event
-            if (event.kind() == ENTRY_DELETE) {
-                // File deleted
-                if (isScript) {
-                    unloadScript(changedFile.getName());
-                }
-            } else {
-                // File created or modified
-                Bukkit.getScheduler().runTask(plugin, () -> {
-                    if (changedFile.exists()) {
-                        if (isScript) {
-                            loadScript(changedFile);
-                        } else if (isConfig) {
-                            // If a config changed, reload the associated script
-                            String scriptName = name.replaceAll("\\.(yml|yaml)$", "");
-                            File scriptFile = new File(changedFile.getParentFile(), scriptName);
-                            if (scriptFile.exists()) {
-                                File dependency = findDependency(scriptFile, scriptName);
-                                if (dependency != null) {
-                                    loadScript(dependency);
-                                } else {
-                                    loadScript(scriptFile);
-                                }
-                            }
-                        }
-                    } else if (isScript) {
-                        unloadScript(changedFile.getName());
-                    }
-                });
-            }
+            queue.fileChanged(dir.resolve(filename).toFile());
         }
     }
 
-    private File findDependency(File scriptFile, String depName) {
-        // Use the ScriptLoader's package-private method to find dependencies
-        return scriptLoader.findDependencyPackage(scriptFile.getParentFile(), depName);
-    }
-
     /**
      * Gets a script instance by its name.
      * @param name The name of the script
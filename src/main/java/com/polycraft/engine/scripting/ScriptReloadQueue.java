@@ -0,0 +1,224 @@
+package com.polycraft.engine.scripting;
+
+import com.polycraft.engine.PolyCraftEngine;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+
+/**
+ * Collects file changes from the script watcher and reloads the affected scripts in batches.
+ * <p>
+ * Editors often write a file several times per save, so changes are coalesced per file and a
+ * file is only acted on once it has been quiet for the debounce window. Each batch reloads the
+ * changed scripts together with every script that is built from a changed file, through
+ * {@code @require} or its config, directly or through other scripts. The batch is handed to
+ * {@link ScriptManager#reloadBatch} on this queue's own thread, which loads the scripts in
+ * dependency order and only uses the main thread to enable them. When the watcher loses events
+ * the folders are rescanned and compared against the last known modification times.
+ */
+final class ScriptReloadQueue {
+
+    private final PolyCraftEngine plugin;
+    private final ScriptManager manager;
+    private final ScriptLoader scriptLoader;
+    private final long debounceNanos;
+    private final ScheduledExecutorService worker;
+
+    // Guarded by this
+    private final Map<File, Long> pending = new LinkedHashMap<>();
+    private boolean rescanRequested;
+    private boolean drainScheduled;
+
+    // Only used on the worker thread
+    private final Map<File, Long> knownFiles = new HashMap<>();
+
+    ScriptReloadQueue(PolyCraftEngine plugin, ScriptManager manager, ScriptLoader scriptLoader, long debounceMillis) {
+        this.plugin = plugin;
+        this.manager = manager;
+        this.scriptLoader = scriptLoader;
+        this.debounceNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, debounceMillis));
+        this.worker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "PolyCraft-Reload");
+            t.setDaemon(true);
+            return t;
+        });
+        worker.execute(() -> knownFiles.putAll(scanFiles()));
+    }
+
+    /**
+     * Records a created, modified or deleted file.
+     * @param file The file in the scripts or libs folder
+     */
+    synchronized void fileChanged(File file) {
+        pending.put(normalize(file), System.nanoTime());
+        scheduleDrain(debounceNanos);
+    }
+
+    /**
+     * Requests a rescan of the watched folders, after the watcher dropped events.
+     */
+    synchronized void rescan() {
+        rescanRequested = true;
+        scheduleDrain(debounceNanos);
+    }
+
+    /**
+     * Drops pending changes and stops the worker, interrupting a batch that is in progress.
+     */
+    void shutdown() {
+        synchronized (this) {
+            pending.clear();
+            rescanRequested = false;
+        }
+        worker.shutdownNow();
+        try {
+            worker.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void scheduleDrain(long delayNanos) {
+        if (!drainScheduled && !worker.isShutdown()) {
+            drainScheduled = true;
+            worker.schedule(this::drain, delayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void drain() {
+        Set<File> changed = new LinkedHashSet<>();
+        boolean rescan;
+        synchronized (this) {
+            drainScheduled = false;
+            long now = System.nanoTime();
+            long wait = 0;
+            for (Iterator<Map.Entry<File, Long>> it = pending.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<File, Long> entry = it.next();
+                long quiet = now - entry.getValue();
+                if (quiet >= debounceNanos) {
+                    changed.add(entry.getKey());
+                    it.remove();
+                } else {
+                    wait = Math.max(wait, debounceNanos - quiet);
+                }
+            }
+            rescan = rescanRequested;
+            rescanRequested = false;
+            if (!pending.isEmpty()) {
+                scheduleDrain(wait);
+            }
+        }
+
+        try {
+            if (rescan) {
+                changed.addAll(findChangedFiles());
+            }
+            for (File file : changed) {
+                if (file.exists()) {
+                    knownFiles.put(file, file.lastModified());
+                } else {
+                    knownFiles.remove(file);
+                }
+            }
+            if (!changed.isEmpty()) {
+                reload(changed);
+            }
+        } catch (Exception e) {
+            plugin.getLogger().log(Level.SEVERE, "Error reloading changed scripts", e);
+        }
+    }
+
+    /**
+     * Reloads every script affected by the changed files.
+     */
+    private void reload(Set<File> changed) {
+        Map<File, Set<File>> dependencies = new LinkedHashMap<>();
+        for (File scriptFile : scriptLoader.listScripts()) {
+            Set<File> files = new LinkedHashSet<>();
+            for (File dependency : scriptLoader.getDependencyFiles(scriptFile)) {
+                files.add(normalize(dependency));
+            }
+            dependencies.put(normalize(scriptFile), files);
+        }
+
+        // Grow the set until no other script is built from anything in it
+        Set<File> affected = new LinkedHashSet<>();
+        Set<File> dirty = new LinkedHashSet<>(changed);
+        boolean grew = true;
+        while (grew) {
+            grew = false;
+            for (Map.Entry<File, Set<File>> entry : dependencies.entrySet()) {
+                File scriptFile = entry.getKey();
+                if (!affected.contains(scriptFile)
+                        && (dirty.contains(scriptFile) || !Collections.disjoint(entry.getValue(), dirty))) {
+                    affected.add(scriptFile);
+                    dirty.add(scriptFile);
+                    grew = true;
+                }
+            }
+        }
+
+        List<String> removed = new ArrayList<>();
+        for (File file : changed) {
+            if (!file.exists() && manager.getScript(file.getName()) != null) {
+                removed.add(file.getName());
+            }
+        }
+
+        if (affected.isEmpty() && removed.isEmpty()) {
+            return;
+        }
+        plugin.getLogger().info("Reloading " + affected.size() + " script(s) after changes to: " +
+                changed.stream().map(File::getName).collect(Collectors.joining(", ")));
+        manager.reloadBatch(removed, new ArrayList<>(affected));
+    }
+
+    /**
+     * @return Files that were added, removed or modified since they were last seen
+     */
+    private Set<File> findChangedFiles() {
+        Map<File, Long> current = scanFiles();
+        Set<File> changed = new LinkedHashSet<>();
+        for (Map.Entry<File, Long> entry : current.entrySet()) {
+            if (!entry.getValue().equals(knownFiles.get(entry.getKey()))) {
+                changed.add(entry.getKey());
+            }
+        }
+        for (File file : knownFiles.keySet()) {
+            if (!current.containsKey(file)) {
+                changed.add(file);
+            }
+        }
+        return changed;
+    }
+
+    private Map<File, Long> scanFiles() {
+        Map<File, Long> files = new HashMap<>();
+        for (File folder : new File[] {scriptLoader.getScriptsFolder(), scriptLoader.getLibsFolder()}) {
+            File[] children = folder.listFiles(File::isFile);
+            if (children != null) {
+                for (File file : children) {
+                    files.put(normalize(file), file.lastModified());
+                }
+            }
+        }
+        return files;
+    }
+
+    private static File normalize(File file) {
+        return file.toPath().toAbsolutePath().normalize().toFile();
+    }
+}
@@ -0,0 +1,157 @@
+package com.polycraft.engine.scripting;
+
+import com.polycraft.engine.PolyCraftEngine;
+import org.graalvm.polyglot.Context;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * Enforces the per-invocation time and allocation budgets from the {@code security} section
+ * of the configuration.
+ * <p>
+ * Every call into a script context is wrapped in an {@link Invocation}. A background thread
+ * checks the running invocations and cancels the context of any that exceeds its budget,
+ * which aborts the script code with a cancellation error on whichever thread is running it.
+ * Allocation is measured per thread, so it counts everything the calling thread allocates
+ * while the script is running, host objects included.
+ */
+public class ScriptWatchdog implements AutoCloseable {
+
+    private static final long CHECK_INTERVAL_MILLIS = 50;
+
+    private final PolyCraftEngine plugin;
+    private final long maxExecutionNanos;
+    private final long maxAllocatedBytes;
+    private final com.sun.management.ThreadMXBean allocationBean;
+    private final Set<Invocation> running = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService timer;
+
+    /**
+     * @param plugin The plugin instance
+     * @param maxExecutionMillis The time budget per invocation in milliseconds, or 0 for unlimited
+     * @param maxAllocatedBytes The allocation budget per invocation in bytes, or 0 for unlimited
+     */
+    public ScriptWatchdog(PolyCraftEngine plugin, long maxExecutionMillis, long maxAllocatedBytes) {
+        this.plugin = plugin;
+        this.maxExecutionNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxExecutionMillis));
+        this.allocationBean = getAllocationBean();
+        if (maxAllocatedBytes > 0 && allocationBean == null) {
+            plugin.getLogger().warning("Per-thread allocation accounting is not supported by this JVM; security.max-memory is ignored.");
+        }
+        this.maxAllocatedBytes = allocationBean != null ? Math.max(0, maxAllocatedBytes) : 0;
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "PolyCraft-Watchdog");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.scheduleAtFixedRate(this::check, CHECK_INTERVAL_MILLIS, CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts watching a call into a context on the current thread.
+     * @param context The context being entered
+     * @param name The script name used in log messages
+     * @param onViolation Called with the reason after the context has been cancelled
+     * @return The invocation, which must be closed when the call returns
+     */
+    public Invocation begin(Context context, String name, Consumer<String> onViolation) {
+        Invocation invocation = new Invocation(context, name, onViolation, Thread.currentThread().getId());
+        running.add(invocation);
+        return invocation;
+    }
+
+    private void check() {
+        long now = System.nanoTime();
+        for (Invocation invocation : running) {
+            String reason = null;
+            if (maxExecutionNanos > 0 && now - invocation.startNanos > maxExecutionNanos) {
+                reason = "exceeded the execution time limit of " + TimeUnit.NANOSECONDS.toMillis(maxExecutionNanos) + "ms";
+            } else if (maxAllocatedBytes > 0 && invocation.getAllocatedBytes() > maxAllocatedBytes) {
+                reason = "exceeded the memory limit of " + (maxAllocatedBytes / (1024 * 1024)) + "MB";
+            }
+
+            if (reason != null && running.remove(invocation)) {
+                plugin.getLogger().severe("Script " + invocation.name + " " + reason + ", cancelling it.");
+                try {
+                    invocation.context.close(true);
+                } catch (Exception e) {
+                    plugin.getLogger().log(Level.WARNING, "Error cancelling script context: " + invocation.name, e);
+                }
+                try {
+                    invocation.onViolation.accept(reason);
+                } catch (Exception e) {
+                    plugin.getLogger().log(Level.WARNING, "Error quarantining script: " + invocation.name, e);
+                }
+            }
+        }
+    }
+
+    private long getThreadAllocatedBytes(long threadId) {
+        return allocationBean != null ? allocationBean.getThreadAllocatedBytes(threadId) : 0;
+    }
+
+    private static com.sun.management.ThreadMXBean getAllocationBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) bean;
+        if (!allocationBean.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        if (!allocationBean.isThreadAllocatedMemoryEnabled()) {
+            allocationBean.setThreadAllocatedMemoryEnabled(true);
+        }
+        return allocationBean;
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        running.clear();
+    }
+
+    /**
+     * A single watched call into a script context.
+     */
+    public final class Invocation implements AutoCloseable {
+        private final Context context;
+        private final String name;
+        private final Consumer<String> onViolation;
+        private final long threadId;
+        private final long startNanos;
+        private final long startAllocatedBytes;
+
+        private Invocation(Context context, String name, Consumer<String> onViolation, long threadId) {
+            this.context = context;
+            this.name = name;
+            this.onViolation = onViolation;
+            this.threadId = threadId;
+            this.startAllocatedBytes = getThreadAllocatedBytes(threadId);
+            this.startNanos = System.nanoTime();
+        }
+
+        /**
+         * @return The bytes allocated by the calling thread since the invocation began
+         */
+        public long getAllocatedBytes() {
+            return Math.max(0, getThreadAllocatedBytes(threadId) - startAllocatedBytes);
+        }
+
+        /**
+         * Stops watching the invocation.
+         */
+        @Override
+        public void close() {
+            running.remove(this);
+        }
+    }
+}
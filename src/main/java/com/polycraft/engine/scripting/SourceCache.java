@@ -0,0 +1,93 @@
+package com.polycraft.engine.scripting;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import org.graalvm.polyglot.Source;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches parsed {@link Source} objects keyed by language, MIME type, name and content hash.
+ * <p>
+ * The shared GraalVM engine keeps its code cache per {@link Source}, so handing the
+ * same instance to every new context lets unchanged scripts and libraries skip
+ * re-parsing on reloads and context re-creation.
+ */
+public class SourceCache {
+
+    private final Cache<String, Source> sources;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public SourceCache(int maxSize) {
+        this.sources = CacheBuilder.newBuilder()
+                .maximumSize(Math.max(1, maxSize))
+                .build();
+    }
+
+    /**
+     * Gets a cached source for the given file, reading its current content from disk.
+     * @param languageId The GraalVM language ID
+     * @param mimeType The MIME type, or null to let GraalVM detect it
+     * @param file The script file
+     * @return The cached or newly built source
+     * @throws IOException If the file cannot be read
+     */
+    public Source getSource(String languageId, String mimeType, File file) throws IOException {
+        String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        return getSource(languageId, mimeType, content, file.getName());
+    }
+
+    /**
+     * Gets a cached source for the given content.
+     * @param languageId The GraalVM language ID
+     * @param mimeType The MIME type, or null to let GraalVM detect it
+     * @param content The source code
+     * @param name The source name shown in stack traces
+     * @return The cached or newly built source
+     */
+    public Source getSource(String languageId, String mimeType, String content, String name) {
+        String key = languageId + ':' + (mimeType != null ? mimeType : "") + ':' + name + ':' + Hashing.sha256().hashString(content, StandardCharsets.UTF_8);
+
+        Source cached = sources.getIfPresent(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+
+        misses.incrementAndGet();
+        Source.Builder builder = Source.newBuilder(languageId, content, name).cached(true);
+        if (mimeType != null && !mimeType.isEmpty()) {
+            builder.mimeType(mimeType);
+        }
+        Source source = builder.buildLiteral();
+
+        // Another thread may have built the same source concurrently; keep the first one
+        Source existing = sources.asMap().putIfAbsent(key, source);
+        return existing != null ? existing : source;
+    }
+
+    /**
+     * Drops all cached sources.
+     */
+    public void invalidateAll() {
+        sources.invalidateAll();
+    }
+
+    public long size() {
+        return sources.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+}
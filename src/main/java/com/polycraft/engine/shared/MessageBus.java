@@ -0,0 +1,133 @@
+package com.polycraft.engine.shared;
+
+import com.polycraft.engine.PolyCraftEngine;
+import com.polycraft.engine.scripting.ScriptInstance;
+import org.bukkit.scheduler.BukkitTask;
+import org.graalvm.polyglot.Value;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Publish/subscribe messaging between scripts.
+ * <p>
+ * Publishing hands the same message object to every subscriber of the topic, so a message is
+ * copied out of the publishing script once no matter how many scripts receive it. The copy is
+ * read-only, so no subscriber can change what the others receive. Publishing
+ * never blocks and is safe from any thread; handlers always run on the main thread.
+ */
+public class MessageBus {
+
+    private final PolyCraftEngine plugin;
+    private final Map<String, List<Subscription>> topics = new ConcurrentHashMap<>();
+    private final Set<Subscription> handlerSubscriptions = ConcurrentHashMap.newKeySet();
+    private BukkitTask deliveryTask;
+
+    public MessageBus(PolyCraftEngine plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Queues a message for every subscriber of a topic.
+     * @param topic The topic
+     * @param message A value that is safe to share between scripts
+     * @return The number of subscribers the message was queued for
+     */
+    public int publish(String topic, Object message) {
+        List<Subscription> subscriptions = topics.get(topic);
+        if (subscriptions == null || message == null) {
+            return 0;
+        }
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(message);
+        }
+        return subscriptions.size();
+    }
+
+    /**
+     * Subscribes a script to a topic.
+     * @param owner The subscribing script
+     * @param topic The topic
+     * @param handler The function called with each message and its topic, or null to poll instead
+     * @param capacity The maximum number of queued messages before the oldest are dropped
+     * @return The subscription
+     */
+    public synchronized Subscription subscribe(ScriptInstance owner, String topic, Value handler, int capacity) {
+        Subscription subscription = new Subscription(this, owner, topic, handler, Math.max(1, capacity));
+        topics.computeIfAbsent(topic, k -> new CopyOnWriteArrayList<>()).add(subscription);
+        if (handler != null) {
+            handlerSubscriptions.add(subscription);
+            if (deliveryTask == null) {
+                deliveryTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::deliver, 1L, 1L);
+            }
+        }
+        return subscription;
+    }
+
+    /**
+     * Closes every subscription of a script. Called when the script is disabled.
+     */
+    public synchronized void unsubscribeAll(ScriptInstance owner) {
+        for (List<Subscription> subscriptions : topics.values()) {
+            for (Subscription subscription : subscriptions) {
+                if (subscription.getOwner() == owner) {
+                    subscription.markClosed();
+                    removeInternal(subscription);
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes all subscriptions and stops delivery.
+     */
+    public synchronized void close() {
+        for (List<Subscription> subscriptions : topics.values()) {
+            subscriptions.forEach(Subscription::markClosed);
+        }
+        topics.clear();
+        handlerSubscriptions.clear();
+        stopDelivery();
+    }
+
+    synchronized void remove(Subscription subscription) {
+        removeInternal(subscription);
+    }
+
+    private void removeInternal(Subscription subscription) {
+        List<Subscription> subscriptions = topics.get(subscription.getTopic());
+        if (subscriptions != null) {
+            subscriptions.remove(subscription);
+            if (subscriptions.isEmpty()) {
+                topics.remove(subscription.getTopic());
+            }
+        }
+        if (handlerSubscriptions.remove(subscription) && handlerSubscriptions.isEmpty()) {
+            stopDelivery();
+        }
+    }
+
+    private void stopDelivery() {
+        if (deliveryTask != null) {
+            deliveryTask.cancel();
+            deliveryTask = null;
+        }
+    }
+
+    /**
+     * Hands the messages queued since the last tick to each handler.
+     */
+    private void deliver() {
+        for (Subscription subscription : handlerSubscriptions) {
+            for (Object message : subscription.drain()) {
+                if (subscription.isClosed()) {
+                    break;
+                }
+                subscription.getOwner().callMessageHandler(subscription.getHandler(), subscription.getTopic(), message);
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.polycraft.engine.shared;
+
+import com.polycraft.engine.scripting.HostValues;
+import org.graalvm.polyglot.Value;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A concurrent map shared by all scripts, returned by {@code poly.shared.map(name)}.
+ * <p>
+ * Script values are copied into plain Java values once when stored; after that every script
+ * reads the same objects by reference. Copied lists and objects are read-only at every level,
+ * so a stored value can only be changed by putting a new one. Java objects such as players are
+ * stored as they are.
+ */
+public final class SharedMap {
+
+    private final String name;
+    private final Map<String, Object> entries = new ConcurrentHashMap<>();
+
+    SharedMap(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Object get(String key) {
+        return entries.get(key);
+    }
+
+    public Object getOrDefault(String key, Value def) {
+        Object value = entries.get(key);
+        return value != null ? value : HostValues.toReadOnlyHost(def);
+    }
+
+    /**
+     * @param value The value, or null to remove the key
+     * @return The previous value, or null
+     */
+    public Object put(String key, Value value) {
+        Object hostValue = HostValues.toReadOnlyHost(value);
+        return hostValue != null ? entries.put(key, hostValue) : entries.remove(key);
+    }
+
+    /**
+     * @return The existing value, or null if the value was stored
+     */
+    public Object putIfAbsent(String key, Value value) {
+        Object hostValue = HostValues.toReadOnlyHost(value);
+        if (hostValue == null) {
+            return entries.get(key);
+        }
+        return entries.putIfAbsent(key, hostValue);
+    }
+
+    /**
+     * @return The removed value, or null
+     */
+    public Object remove(String key) {
+        return entries.remove(key);
+    }
+
+    public boolean containsKey(String key) {
+        return entries.containsKey(key);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public List<String> keys() {
+        return new ArrayList<>(entries.keySet());
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+}
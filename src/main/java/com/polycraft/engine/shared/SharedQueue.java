@@ -0,0 +1,72 @@
+package com.polycraft.engine.shared;
+
+import com.polycraft.engine.scripting.HostValues;
+import org.graalvm.polyglot.Value;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * A bounded FIFO queue shared by all scripts, returned by {@code poly.shared.queue(name)}.
+ * <p>
+ * Nothing blocks: a full queue rejects the offer and an empty queue returns null, so the queue
+ * is safe to use from the main thread. Values are copied like {@link SharedMap} values and are
+ * read-only.
+ */
+public final class SharedQueue {
+
+    private final String name;
+    private final BlockingQueue<Object> elements;
+
+    SharedQueue(String name, int capacity) {
+        this.name = name;
+        this.elements = new LinkedBlockingQueue<>(capacity);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return false if the queue is full or the value is null
+     */
+    public boolean offer(Value value) {
+        Object hostValue = HostValues.toReadOnlyHost(value);
+        return hostValue != null && elements.offer(hostValue);
+    }
+
+    /**
+     * @return The head of the queue, or null if it is empty
+     */
+    public Object poll() {
+        return elements.poll();
+    }
+
+    public Object peek() {
+        return elements.peek();
+    }
+
+    /**
+     * Removes up to the given number of elements.
+     * @return The removed elements in queue order
+     */
+    public List<Object> drain(int max) {
+        List<Object> drained = new ArrayList<>(Math.min(Math.max(max, 0), elements.size()));
+        elements.drainTo(drained, Math.max(max, 0));
+        return drained;
+    }
+
+    public int size() {
+        return elements.size();
+    }
+
+    public int remainingCapacity() {
+        return elements.remainingCapacity();
+    }
+
+    public void clear() {
+        elements.clear();
+    }
+}
@@ -0,0 +1,62 @@
+package com.polycraft.engine.shared;
+
+import com.polycraft.engine.PolyCraftEngine;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory state shared between scripts, exposed to them as {@code poly.shared}.
+ * <p>
+ * Each script runs in its own context, and script objects cannot cross contexts. Values are
+ * therefore copied into plain Java objects once when they enter a map, queue or message, and
+ * are then passed by reference with no serialization. The copied lists and objects are
+ * read-only, since every reader sees the same instance. Maps and queues outlive the scripts that
+ * created them, so modules can hand data to each other across reloads; everything is dropped
+ * when the plugin is disabled.
+ */
+public class SharedStore {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 10000;
+    public static final int DEFAULT_SUBSCRIPTION_CAPACITY = 1024;
+
+    private final Map<String, SharedMap> maps = new ConcurrentHashMap<>();
+    private final Map<String, SharedQueue> queues = new ConcurrentHashMap<>();
+    private final MessageBus bus;
+
+    public SharedStore(PolyCraftEngine plugin) {
+        this.bus = new MessageBus(plugin);
+    }
+
+    /**
+     * Gets or creates a shared map.
+     * @param name The map name
+     * @return The map, the same instance for every script
+     */
+    public SharedMap map(String name) {
+        return maps.computeIfAbsent(name, SharedMap::new);
+    }
+
+    /**
+     * Gets or creates a shared queue.
+     * @param name The queue name
+     * @param capacity The capacity used if the queue does not exist yet
+     * @return The queue, the same instance for every script
+     */
+    public SharedQueue queue(String name, int capacity) {
+        return queues.computeIfAbsent(name, n -> new SharedQueue(n, Math.max(1, capacity)));
+    }
+
+    public MessageBus getBus() {
+        return bus;
+    }
+
+    /**
+     * Drops all maps and queues and closes all subscriptions.
+     */
+    public void close() {
+        bus.close();
+        maps.clear();
+        queues.clear();
+    }
+}
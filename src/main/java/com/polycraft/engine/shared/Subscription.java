@@ -0,0 +1,104 @@
+package com.polycraft.engine.shared;
+
+import com.polycraft.engine.scripting.ScriptInstance;
+import org.graalvm.polyglot.Value;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A script's subscription to a {@link MessageBus} topic, with its own bounded queue.
+ * <p>
+ * When the queue is full the oldest message is dropped, so a slow subscriber never holds up the
+ * publisher or other subscribers. Subscriptions with a handler are delivered on the main thread
+ * every tick; subscriptions without one are read by the script with {@link #poll()} or
+ * {@link #drain()}.
+ */
+public final class Subscription {
+
+    private final MessageBus bus;
+    private final ScriptInstance owner;
+    private final String topic;
+    private final Value handler;
+    private final BlockingQueue<Object> messages;
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean closed;
+
+    Subscription(MessageBus bus, ScriptInstance owner, String topic, Value handler, int capacity) {
+        this.bus = bus;
+        this.owner = owner;
+        this.topic = topic;
+        this.handler = handler;
+        this.messages = new ArrayBlockingQueue<>(capacity);
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    /**
+     * @return The next message, or null if there is none
+     */
+    public Object poll() {
+        return messages.poll();
+    }
+
+    /**
+     * @return All queued messages, oldest first
+     */
+    public List<Object> drain() {
+        List<Object> drained = new ArrayList<>(messages.size());
+        messages.drainTo(drained);
+        return drained;
+    }
+
+    public int size() {
+        return messages.size();
+    }
+
+    /**
+     * @return The number of messages dropped because the queue was full
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Stops receiving messages and discards the queued ones.
+     */
+    public void close() {
+        if (!closed) {
+            closed = true;
+            bus.remove(this);
+            messages.clear();
+        }
+    }
+
+    void offer(Object message) {
+        while (!messages.offer(message)) {
+            if (messages.poll() != null) {
+                dropped.incrementAndGet();
+            }
+        }
+    }
+
+    ScriptInstance getOwner() {
+        return owner;
+    }
+
+    Value getHandler() {
+        return handler;
+    }
+
+    void markClosed() {
+        closed = true;
+        messages.clear();
+    }
+}